@@ -2,11 +2,27 @@ package com.laychv.swiperefreshlayout
 
 import android.os.Bundle
 import androidx.appcompat.app.AppCompatActivity
+import com.laychv.swiperefreshlayout.source.SwipeRefreshLayout
+import androidx.swiperefreshlayout.widget.SwipeRefreshLayout as StockSwipeRefreshLayout
 
 class MainActivity : AppCompatActivity() {
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_main)
+
+        // Both widgets stop refreshing after a while, so that they can be pulled again
+        val srl = findViewById<SwipeRefreshLayout>(R.id.srl)
+        srl.setOnRefreshListener {
+            srl.postDelayed({ srl.isRefreshing = false }, REFRESH_MILLIS)
+        }
+        val srlStock = findViewById<StockSwipeRefreshLayout>(R.id.srl_stock)
+        srlStock.setOnRefreshListener {
+            srlStock.postDelayed({ srlStock.isRefreshing = false }, REFRESH_MILLIS)
+        }
+    }
+
+    private companion object {
+        const val REFRESH_MILLIS = 1000L
     }
 }
@@ -0,0 +1,127 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.os.PowerManager;
+
+/**
+ * Watches the frames the spinner draws while the indicator is refreshing and steps the
+ * indicator's rendering quality down when they miss their budget, or the device is getting
+ * hot, and back up once there is headroom again. Levels are cumulative: each one keeps the
+ * degradations of the levels before it. Every refresh starts again at full quality.
+ *
+ * <p>Frame times come from {@link CircularProgressDrawable.OnFrameDrawnListener}, so nothing is
+ * sampled, and no callback is scheduled, while the spinner is paused, stepping in low power
+ * mode or showing determinate progress. A late frame is counted whatever made it late; the
+ * indicator is then the part of the screen that gives way.
+ */
+class AdaptiveQualityController implements CircularProgressDrawable.OnFrameDrawnListener {
+    // Filtered, rotated bitmap
+    static final int LEVEL_FULL = 0;
+    // Nearest-neighbour sampling of the bitmap
+    static final int LEVEL_NEAREST = 1;
+    // Spinner redrawn at a lower frame rate
+    static final int LEVEL_LOW_FRAME_RATE = 2;
+    // No shadow or elevation under the spinner
+    static final int LEVEL_NO_SHADOW = 3;
+
+    // Number of frames judged together
+    private static final int WINDOW_FRAMES = 30;
+    // A frame is late when it takes this many times the frame budget
+    private static final float LATE_FRAME_FACTOR = 1.5f;
+    // Quality steps down when more than this fraction of a window is late
+    private static final float LATE_FRAME_FRACTION = .2f;
+    // Number of windows in a row without a late frame before quality steps back up
+    private static final int HEADROOM_WINDOWS = 4;
+
+    interface Callback {
+        void onQualityLevelChanged(int level);
+    }
+
+    private final SystemPowerState mPowerState;
+    private final Callback mCallback;
+    private int mLevel = LEVEL_FULL;
+    private boolean mRunning;
+    private float mFrameBudgetMillis;
+    private int mFrames;
+    private int mLateFrames;
+    private int mCleanWindows;
+
+    AdaptiveQualityController(SystemPowerState powerState, Callback callback) {
+        mPowerState = powerState;
+        mCallback = callback;
+    }
+
+    /**
+     * Starts watching frame times at full quality, e.g. when a refresh starts.
+     *
+     * @param refreshRate refresh rate of the display in frames per second
+     */
+    void start(float refreshRate) {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mFrameBudgetMillis = 1000f / (refreshRate > 0 ? refreshRate : 60f);
+        mFrames = 0;
+        mLateFrames = 0;
+        reset();
+    }
+
+    void stop() {
+        mRunning = false;
+    }
+
+    int getLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Goes back to full quality, e.g. when adaptive quality is turned off.
+     */
+    void reset() {
+        mCleanWindows = 0;
+        setLevel(LEVEL_FULL);
+    }
+
+    @Override
+    public void onFrameDrawn(long frameDurationMillis, float frameIntervalMillis) {
+        if (!mRunning) {
+            return;
+        }
+        mFrames++;
+        // A capped frame rate makes the spinner skip display frames on purpose
+        final float budgetMillis = Math.max(mFrameBudgetMillis, frameIntervalMillis);
+        if (frameDurationMillis > budgetMillis * LATE_FRAME_FACTOR) {
+            mLateFrames++;
+        }
+        if (mFrames == WINDOW_FRAMES) {
+            judgeWindow();
+        }
+    }
+
+    private void judgeWindow() {
+        // Cached from the shared thermal listener, as this runs while the spinner draws
+        final int thermalStatus = mPowerState.getThermalStatus();
+        if (mLateFrames > WINDOW_FRAMES * LATE_FRAME_FRACTION
+                || thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            mCleanWindows = 0;
+            setLevel(mLevel + 1);
+        } else if (mLateFrames == 0 && thermalStatus < PowerManager.THERMAL_STATUS_MODERATE) {
+            if (++mCleanWindows >= HEADROOM_WINDOWS) {
+                mCleanWindows = 0;
+                setLevel(mLevel - 1);
+            }
+        } else {
+            mCleanWindows = 0;
+        }
+        mFrames = 0;
+        mLateFrames = 0;
+    }
+
+    private void setLevel(int level) {
+        level = Math.max(LEVEL_FULL, Math.min(LEVEL_NO_SHADOW, level));
+        if (mLevel != level) {
+            mLevel = level;
+            mCallback.onQualityLevelChanged(level);
+        }
+    }
+}
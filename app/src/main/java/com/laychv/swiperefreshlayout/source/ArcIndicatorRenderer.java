@@ -0,0 +1,116 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+/**
+ * Renders the indicator as a rotating arc in the Material style. The arc grows with the drag
+ * progress and stays at a fixed length while refreshing. It needs no bitmap at all.
+ */
+public class ArcIndicatorRenderer implements IndicatorRenderer {
+    // Max amount of circle covered by the arc, where 1.0 is a full circle
+    private static final float MAX_ARC = .8f;
+    // Amount of circle covered by the arc while refreshing
+    private static final float REFRESHING_ARC = .75f;
+
+    private final Paint mPaint;
+    private final RectF mArcBounds = new RectF();
+    private final float mStrokeWidth;
+    private float mArc;
+    private boolean mRefreshing;
+    // Progress of the refresh, negative while indeterminate
+    private float mProgress = -1f;
+
+    /**
+     * @param color       color of the arc
+     * @param strokeWidth stroke width of the arc in pixels
+     */
+    public ArcIndicatorRenderer(@ColorInt int color, @Px float strokeWidth) {
+        mStrokeWidth = strokeWidth;
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+        mPaint.setStrokeWidth(strokeWidth);
+        mPaint.setColor(color);
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public int getRetainedByteCount() {
+        return 0;
+    }
+
+    @Override
+    public int getGraphicsByteCount() {
+        return 0;
+    }
+
+    @Override
+    public void setDragProgress(float progress) {
+        if (!mRefreshing) {
+            mArc = Math.min(MAX_ARC, Math.max(0f, progress) * MAX_ARC);
+        }
+    }
+
+    @Override
+    public void setRefreshing(boolean refreshing) {
+        mRefreshing = refreshing;
+        mArc = refreshing ? REFRESHING_ARC : 0f;
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        mProgress = progress;
+    }
+
+    @Override
+    public void setColor(int color) {
+        mPaint.setColor(color);
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation) {
+        final boolean determinate = mRefreshing && mProgress >= 0f;
+        final float arc = determinate ? mProgress : mArc;
+        if (arc <= 0f) {
+            return;
+        }
+        final float inset = mStrokeWidth * 2;
+        mArcBounds.set(bounds);
+        mArcBounds.inset(inset, inset);
+        if (determinate) {
+            // Grows clockwise from 12 o'clock, like a determinate progress bar
+            canvas.drawArc(mArcBounds, -90f, arc * 360f, false, mPaint);
+            return;
+        }
+        canvas.rotate(rotation, bounds.exactCenterX(), bounds.exactCenterY());
+        canvas.drawArc(mArcBounds, 0f, arc * 360f, false, mPaint);
+    }
+
+    @Override
+    public boolean allocatesWhileDrawing() {
+        return false;
+    }
+
+    @Override
+    public boolean canRunOnRenderThread() {
+        return true;
+    }
+}
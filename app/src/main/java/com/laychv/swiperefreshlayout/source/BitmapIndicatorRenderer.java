@@ -0,0 +1,304 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DrawFilter;
+import android.graphics.ImageDecoder;
+import android.graphics.Paint;
+import android.graphics.PaintFlagsDrawFilter;
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.util.Size;
+import android.util.TypedValue;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+
+/**
+ * Renders the indicator as a rotating bitmap icon. This is the default renderer, drawing
+ * {@code R.drawable.icon_loading_bg}.
+ *
+ * <p>The icon is drawn in its own colors. In alpha mask mode, see {@link #setAlphaMask(boolean)},
+ * only its coverage is kept and it is drawn in the color of the color scheme instead.
+ *
+ * <p>From API 28 the icon is decoded with {@link ImageDecoder} straight to the size it is drawn
+ * at, see {@link #setMaxSize(int)}, and optionally into a hardware bitmap that only lives in
+ * graphics memory, see {@link #setHardwareBitmap(boolean)}. Below that it is subsampled by
+ * {@link BitmapFactory}.
+ */
+public class BitmapIndicatorRenderer implements IndicatorRenderer {
+    private static final DrawFilter ANTI_ALIAS_FILTER = new PaintFlagsDrawFilter(0,
+            Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private static final DrawFilter NEAREST_FILTER = new PaintFlagsDrawFilter(
+            Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG, 0);
+    // Alpha of the part of the icon not yet filled by determinate progress
+    private static final int UNFILLED_ALPHA = 0x4D;
+
+    private final Resources mResources;
+    private final int mIconRes;
+    private final Paint mPaint;
+    private Bitmap mBitmap;
+    // Progress of the refresh, negative while indeterminate
+    private float mProgress = -1f;
+    private boolean mFilterBitmap = true;
+    private boolean mAlphaMask;
+    // Color of the icon in alpha mask mode, see setColor()
+    private int mColor = Color.BLACK;
+    // Largest size the icon is decoded at, 0 for its own size
+    private int mMaxSize;
+    private boolean mHardwareBitmap;
+
+    /**
+     * @param resources resources to decode the icon from
+     * @param iconRes   bitmap drawable resource of the icon
+     */
+    public BitmapIndicatorRenderer(@NonNull Resources resources, @DrawableRes int iconRes) {
+        mResources = resources;
+        mIconRes = iconRes;
+        mPaint = new Paint();
+        mPaint.setAntiAlias(true);
+        mPaint.setDither(true);
+    }
+
+    @Override
+    public void prepare() {
+        if (mBitmap == null) {
+            mBitmap = decodeIcon();
+        }
+    }
+
+    @Override
+    public void release() {
+        // Not recycled: a display list recorded before the release may still reference it.
+        mBitmap = null;
+    }
+
+    @Override
+    public int getRetainedByteCount() {
+        return mBitmap != null ? mBitmap.getAllocationByteCount() : 0;
+    }
+
+    @Override
+    public int getGraphicsByteCount() {
+        return mBitmap != null && isHardware(mBitmap) ? mBitmap.getAllocationByteCount() : 0;
+    }
+
+    /**
+     * Caps the size the icon is decoded at, e.g. to the diameter of the indicator, so that a
+     * large asset is not decoded at full resolution only to be drawn smaller. The aspect ratio
+     * is kept. Below API 28 the icon is subsampled by powers of two, so it may stay up to twice
+     * as large.
+     *
+     * @param maxSize largest width or height in pixels, or 0 to decode the icon at its own size
+     */
+    public void setMaxSize(@Px int maxSize) {
+        maxSize = Math.max(0, maxSize);
+        if (mMaxSize == maxSize) {
+            return;
+        }
+        mMaxSize = maxSize;
+        reloadIcon();
+    }
+
+    /**
+     * Selects whether the icon is decoded into a hardware bitmap from API 28. Its pixels then
+     * only live in graphics memory, but it cannot be drawn into a software canvas, e.g. a view
+     * drawn into a bitmap or a software layer. Ignored in alpha mask mode. Off by default.
+     *
+     * @param hardwareBitmap whether to decode the icon into a hardware bitmap
+     */
+    public void setHardwareBitmap(boolean hardwareBitmap) {
+        if (mHardwareBitmap != hardwareBitmap) {
+            mHardwareBitmap = hardwareBitmap;
+            reloadIcon();
+        }
+    }
+
+    /**
+     * Decodes the icon again after a setting it is decoded with changed, if it was loaded, so
+     * that it is not decoded lazily while drawing. The old bitmap is only dropped, not reused
+     * or recycled, as a display list recorded before may still draw it.
+     */
+    private void reloadIcon() {
+        final boolean loaded = mBitmap != null;
+        mBitmap = null;
+        if (loaded) {
+            prepare();
+        }
+    }
+
+    private static boolean isHardware(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= 26 && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+
+    private Bitmap decodeIcon() {
+        final Bitmap bitmap = Build.VERSION.SDK_INT >= 28 ? decodeWithImageDecoder()
+                : decodeWithBitmapFactory();
+        if (bitmap == null || !mAlphaMask) {
+            return bitmap;
+        }
+        // Decoders do not reliably produce ALPHA_8 directly, so the coverage is extracted and
+        // the full color bitmap, which was never drawn, is freed right away
+        final Bitmap mask = bitmap.extractAlpha();
+        bitmap.recycle();
+        return mask;
+    }
+
+    @RequiresApi(28)
+    private Bitmap decodeWithImageDecoder() {
+        final ImageDecoder.Source source = ImageDecoder.createSource(mResources, mIconRes);
+        final float densityScale = getDensityScale();
+        try {
+            return ImageDecoder.decodeBitmap(source, new ImageDecoder.OnHeaderDecodedListener() {
+                @Override
+                public void onHeaderDecoded(@NonNull ImageDecoder decoder,
+                                            @NonNull ImageDecoder.ImageInfo info,
+                                            @NonNull ImageDecoder.Source source) {
+                    // The encoded size: a target size replaces the scaling to the screen
+                    // density, so it is always set, and includes that scaling
+                    final Size size = info.getSize();
+                    float width = size.getWidth() * densityScale;
+                    float height = size.getHeight() * densityScale;
+                    final float largest = Math.max(width, height);
+                    if (mMaxSize > 0 && largest > mMaxSize) {
+                        width *= mMaxSize / largest;
+                        height *= mMaxSize / largest;
+                    }
+                    decoder.setTargetSize(Math.max(1, Math.round(width)),
+                            Math.max(1, Math.round(height)));
+                    // The alpha mask is extracted from the pixels on the CPU
+                    decoder.setAllocator(mHardwareBitmap && !mAlphaMask
+                            ? ImageDecoder.ALLOCATOR_HARDWARE : ImageDecoder.ALLOCATOR_SOFTWARE);
+                }
+            });
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns how much the icon is scaled from the density of its resource bucket to the
+     * density of the screen, as {@link BitmapFactory} does for resources.
+     */
+    private float getDensityScale() {
+        final TypedValue value = new TypedValue();
+        mResources.getValue(mIconRes, value, true);
+        if (value.density == TypedValue.DENSITY_NONE) {
+            return 1f;
+        }
+        final int density = value.density == TypedValue.DENSITY_DEFAULT
+                ? DisplayMetrics.DENSITY_DEFAULT : value.density;
+        return mResources.getDisplayMetrics().densityDpi / (float) density;
+    }
+
+    private Bitmap decodeWithBitmapFactory() {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, mIconRes, options);
+        options.inJustDecodeBounds = false;
+        // Bounds are already scaled to the screen density, which still applies after sampling
+        final int largest = Math.max(options.outWidth, options.outHeight);
+        options.inSampleSize = 1;
+        if (mMaxSize > 0) {
+            while (largest / (options.inSampleSize * 2) >= mMaxSize) {
+                options.inSampleSize *= 2;
+            }
+        }
+        return BitmapFactory.decodeResource(mResources, mIconRes, options);
+    }
+
+    /**
+     * Keeps only the coverage of the icon, as an {@link Bitmap.Config#ALPHA_8} mask a quarter
+     * of the size of the full color bitmap, and draws it in the color of the color scheme. Only
+     * suits icons that are a single color with anti-aliased edges.
+     *
+     * @param alphaMask whether to draw the icon as a tinted alpha mask
+     */
+    public void setAlphaMask(boolean alphaMask) {
+        if (mAlphaMask != alphaMask) {
+            mAlphaMask = alphaMask;
+            // An ALPHA_8 bitmap is drawn with the paint color, a color bitmap only uses its alpha
+            mPaint.setColor(alphaMask ? mColor : Color.BLACK);
+            reloadIcon();
+        }
+    }
+
+    /**
+     * Selects whether the icon is filtered when it is scaled or rotated. Nearest-neighbour
+     * sampling looks rougher but is cheaper on weak GPUs.
+     */
+    public void setFilterBitmap(boolean filter) {
+        if (mFilterBitmap != filter) {
+            mFilterBitmap = filter;
+            mPaint.setFilterBitmap(filter);
+        }
+    }
+
+    @Override
+    public void setDragProgress(float progress) {
+    }
+
+    @Override
+    public void setRefreshing(boolean refreshing) {
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        mProgress = progress;
+    }
+
+    @Override
+    public void setColor(int color) {
+        mColor = color;
+        if (mAlphaMask) {
+            mPaint.setColor(color);
+        }
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation) {
+        if (mBitmap == null) {
+            return;
+        }
+        // 抗锯齿
+        canvas.setDrawFilter(mFilterBitmap ? ANTI_ALIAS_FILTER : NEAREST_FILTER);
+        final Bitmap bitmap = mBitmap;
+        canvas.rotate(rotation, bounds.exactCenterX(), bounds.exactCenterY());// 确保图标是垂直的
+        // Centered rather than at a fixed pixel offset, which only lined up at hdpi
+        final float left = bounds.exactCenterX() - bitmap.getWidth() / 2f;
+        final float top = bounds.exactCenterY() - bitmap.getHeight() / 2f;
+        if (mProgress >= 0f) {
+            // Determinate: the icon fills up from the bottom
+            final int alpha = mPaint.getAlpha();
+            mPaint.setAlpha(alpha * UNFILLED_ALPHA / 0xFF);
+            canvas.drawBitmap(bitmap, left, top, mPaint);
+            mPaint.setAlpha(alpha);
+            canvas.clipRect(bounds.left, bounds.bottom - bounds.height() * mProgress,
+                    bounds.right, bounds.bottom);
+        }
+        canvas.drawBitmap(bitmap, left, top, mPaint);
+        canvas.setDrawFilter(null);
+    }
+
+    @Override
+    public boolean allocatesWhileDrawing() {
+        return false;
+    }
+
+    @Override
+    public boolean canRunOnRenderThread() {
+        return true;
+    }
+}
@@ -17,14 +17,27 @@
 package com.laychv.swiperefreshlayout.source;
 
 import android.content.Context;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.OvalShape;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.view.animation.Animation;
 
+import androidx.annotation.IntDef;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.ViewCompat;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * Private class created to work around issues with AnimationListeners being
  * called before the animation is actually complete and support shadows on older
@@ -32,37 +45,281 @@ import androidx.core.view.ViewCompat;
  */
 class CircleImageView extends AppCompatImageView {
 
+    /**
+     * The shadow is cast by the platform from the view's elevation.
+     */
+    static final int SHADOW_MODE_ELEVATION = 0;
+    /**
+     * The shadow is a bitmap rendered once per size and shared between instances.
+     */
+    static final int SHADOW_MODE_BITMAP = 1;
+    /**
+     * No shadow is drawn and no room is reserved for it.
+     */
+    static final int SHADOW_MODE_NONE = 2;
+
+    private static final int FILL_SHADOW_COLOR = 0x3D000000;
     private static final float SHADOW_RADIUS = 3.5f;
     private static final int SHADOW_ELEVATION = 4;
+    // Number of pre-rendered shadows kept, one per indicator size in use
+    private static final int MAX_SHADOW_BITMAPS = 4;
+    // Pre-rendered shadows keyed by view size and shadow radius, see getShadowBitmap()
+    private static final LruCache<Integer, Bitmap> sShadowBitmaps =
+            new LruCache<>(MAX_SHADOW_BITMAPS);
+    private static final ViewOutlineProvider OVAL_OUTLINE = new ViewOutlineProvider() {
+        @Override
+        public void getOutline(View view, Outline outline) {
+            final int inset = ((CircleImageView) view).mShadowRadius;
+            outline.setOval(inset, inset, view.getWidth() - inset, view.getHeight() - inset);
+        }
+    };
     private final int mShadowRadius;
+    private final float mElevation;
+    private int mShadowMode = SHADOW_MODE_ELEVATION;
+    // Whether the shadow is left out without changing the view's size, see setShadowSuppressed()
+    private boolean mShadowSuppressed;
+    // Color of the disc behind the drawable, transparent to draw no disc
+    private int mBackgroundColor;
+    private final Paint mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private Bitmap mShadowBitmap;
+    // Measured size for the last pair of measure specs, see onMeasure()
+    private boolean mMeasureCacheValid;
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    private int mCachedMeasuredWidth;
+    private int mCachedMeasuredHeight;
     private Animation.AnimationListener mListener;
+    // Whether the current animation should run on a hardware layer
+    private boolean mHardwareLayerRequested;
+    // Whether the hardware layer was set by us and has to be dropped again
+    private boolean mHardwareLayerPromoted;
+    // Whether the host lets the drawable animate, see setHostStarted()
+    private boolean mHostStarted = true;
 
     CircleImageView(Context context, int color) {
         super(context);
         final float density = getContext().getResources().getDisplayMetrics().density;
 
         mShadowRadius = (int) (density * SHADOW_RADIUS);
+        mElevation = SHADOW_ELEVATION * density;
+        mBackgroundColor = color;
+        mBackgroundPaint.setColor(color);
+        applyShadowMode();
+    }
 
-        ShapeDrawable circle;
-        circle = new ShapeDrawable(new OvalShape());
-        ViewCompat.setElevation(this, SHADOW_ELEVATION * density);
-        circle.getPaint().setColor(color);
-//        ViewCompat.setBackground(this, circle);
+    /**
+     * Selects how the shadow under the circle is rendered.
+     *
+     * @param shadowMode One of {@link #SHADOW_MODE_ELEVATION}, {@link #SHADOW_MODE_BITMAP} or
+     *                   {@link #SHADOW_MODE_NONE}.
+     */
+    void setShadowMode(@ShadowMode int shadowMode) {
+        if (mShadowMode == shadowMode) {
+            return;
+        }
+        mShadowMode = shadowMode;
+        mShadowBitmap = null;
+        mMeasureCacheValid = false;
+        applyShadowMode();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Stops drawing the shadow, but keeps the room reserved for it, so that it can be dropped
+     * while the indicator is on screen without a new layout pass.
+     */
+    void setShadowSuppressed(boolean suppressed) {
+        if (mShadowSuppressed != suppressed) {
+            mShadowSuppressed = suppressed;
+            applyShadowMode();
+            invalidate();
+        }
+    }
+
+    @ShadowMode
+    int getShadowMode() {
+        return mShadowMode;
+    }
+
+    /**
+     * Only a disc casts a shadow: the icon alone is drawn without one, as it always was.
+     */
+    private boolean hasDisc() {
+        return Color.alpha(mBackgroundColor) != 0;
+    }
+
+    private void applyShadowMode() {
+        if (mShadowMode == SHADOW_MODE_ELEVATION && hasDisc() && !mShadowSuppressed) {
+            // There is no background to take the outline from, so provide the circle
+            setOutlineProvider(OVAL_OUTLINE);
+            ViewCompat.setElevation(this, mElevation);
+        } else {
+            setOutlineProvider(null);
+            ViewCompat.setElevation(this, 0);
+        }
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mMeasureCacheValid && widthMeasureSpec == mLastWidthMeasureSpec
+                && heightMeasureSpec == mLastHeightMeasureSpec) {
+            setMeasuredDimension(mCachedMeasuredWidth, mCachedMeasuredHeight);
+            return;
+        }
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        setMeasuredDimension(getMeasuredWidth() + mShadowRadius * 2, getMeasuredHeight() + mShadowRadius * 2);
+        final int shadowPadding = mShadowMode == SHADOW_MODE_NONE ? 0 : mShadowRadius * 2;
+        mCachedMeasuredWidth = getMeasuredWidth() + shadowPadding;
+        mCachedMeasuredHeight = getMeasuredHeight() + shadowPadding;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mMeasureCacheValid = true;
+        setMeasuredDimension(mCachedMeasuredWidth, mCachedMeasuredHeight);
+    }
+
+    @Override
+    public void setImageDrawable(Drawable drawable) {
+        super.setImageDrawable(drawable);
+        mMeasureCacheValid = false;
+        updateDrawableVisibility();
+    }
+
+    /**
+     * Tells whether the screen hosting this view is started. While it is not, the drawable is
+     * kept invisible so that its animation pauses, even if the view itself is still shown.
+     */
+    void setHostStarted(boolean started) {
+        if (mHostStarted != started) {
+            mHostStarted = started;
+            updateDrawableVisibility();
+        }
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        updateDrawableVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateDrawableVisibility();
+    }
+
+    /**
+     * ImageView only reports its own visibility to the drawable, and not at all for window
+     * visibility before API 24, so the drawable's visibility is recomputed here from everything
+     * that can hide it.
+     */
+    private void updateDrawableVisibility() {
+        final Drawable drawable = getDrawable();
+        if (drawable != null) {
+            drawable.setVisible(mHostStarted && isShown()
+                    && getWindowVisibility() == View.VISIBLE, false);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mShadowMode == SHADOW_MODE_BITMAP && hasDisc() && !mShadowSuppressed) {
+            if (mShadowBitmap == null) {
+                mShadowBitmap = getShadowBitmap(getWidth(), getHeight(), mShadowRadius);
+            }
+            if (mShadowBitmap != null) {
+                canvas.drawBitmap(mShadowBitmap, 0, 0, null);
+            }
+        }
+        if (hasDisc()) {
+            final int inset = mShadowMode == SHADOW_MODE_NONE ? 0 : mShadowRadius;
+            canvas.drawCircle(getWidth() / 2f, getHeight() / 2f,
+                    Math.min(getWidth(), getHeight()) / 2f - inset, mBackgroundPaint);
+        }
+        super.onDraw(canvas);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mShadowBitmap = null;
+    }
+
+    /**
+     * Returns the shadow for a circle view of the given size, rendering it on first use. The
+     * bitmaps are shared by every instance, so each size is only rendered once per process.
+     */
+    private static Bitmap getShadowBitmap(int width, int height, int shadowRadius) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        final Integer key = (Math.max(width, height) << 8) | (shadowRadius & 0xFF);
+        Bitmap shadow = sShadowBitmaps.get(key);
+        if (shadow == null) {
+            shadow = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            final float radius = Math.min(width, height) / 2f;
+            final float circleRadius = radius - shadowRadius;
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            // Only the ring outside the disc, fading out from its edge
+            paint.setShader(new RadialGradient(width / 2f, height / 2f, radius,
+                    new int[]{Color.TRANSPARENT, Color.TRANSPARENT, FILL_SHADOW_COLOR,
+                            Color.TRANSPARENT},
+                    new float[]{0f, circleRadius / radius, circleRadius / radius, 1f},
+                    Shader.TileMode.CLAMP));
+            new Canvas(shadow).drawCircle(width / 2f, height / 2f, radius, paint);
+            sShadowBitmaps.put(key, shadow);
+        }
+        return shadow;
+    }
+
+    /**
+     * Drops the pre-rendered shadows shared by every instance, e.g. under memory pressure.
+     * Views still showing one keep it until they are resized or their shadow is released.
+     */
+    static void trimShadowCache() {
+        sShadowBitmaps.evictAll();
+    }
+
+    /**
+     * Drops this view's reference to its pre-rendered shadow while the indicator is idle. It is
+     * taken from the shared cache again on the next draw.
+     */
+    void releaseShadowBitmap() {
+        mShadowBitmap = null;
     }
 
     public void setAnimationListener(Animation.AnimationListener listener) {
         mListener = listener;
     }
 
+    @Override
+    public void startAnimation(Animation animation) {
+        startAnimation(animation, false);
+    }
+
+    /**
+     * Starts the given animation, optionally rendering this view into a hardware layer while it
+     * runs. Scale and alpha animations only change how the layer is composited, so the circle
+     * and its shadow do not have to be re-rasterized every frame.
+     *
+     * @param animation        The animation to start.
+     * @param useHardwareLayer Whether to promote this view to a hardware layer until the
+     *                         animation ends.
+     */
+    public void startAnimation(Animation animation, boolean useHardwareLayer) {
+        mHardwareLayerRequested = useHardwareLayer;
+        if (!useHardwareLayer) {
+            demoteHardwareLayer();
+        }
+        super.startAnimation(animation);
+    }
+
     @Override
     public void onAnimationStart() {
         super.onAnimationStart();
+        if (mHardwareLayerRequested && getLayerType() == View.LAYER_TYPE_NONE) {
+            setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            mHardwareLayerPromoted = true;
+        }
         if (mListener != null) {
             mListener.onAnimationStart(getAnimation());
         }
@@ -71,11 +328,29 @@ class CircleImageView extends AppCompatImageView {
     @Override
     public void onAnimationEnd() {
         super.onAnimationEnd();
+        demoteHardwareLayer();
         if (mListener != null) {
             mListener.onAnimationEnd(getAnimation());
         }
     }
 
+    @Override
+    public void setVisibility(int visibility) {
+        super.setVisibility(visibility);
+        if (visibility != View.VISIBLE) {
+            // A cleared animation never reaches onAnimationEnd()
+            demoteHardwareLayer();
+        }
+        updateDrawableVisibility();
+    }
+
+    private void demoteHardwareLayer() {
+        if (mHardwareLayerPromoted) {
+            mHardwareLayerPromoted = false;
+            setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+
     /**
      * Update the background color of the circle image view.
      *
@@ -87,8 +362,19 @@ class CircleImageView extends AppCompatImageView {
 
     @Override
     public void setBackgroundColor(int color) {
-        if (getBackground() instanceof ShapeDrawable) {
-            ((ShapeDrawable) getBackground()).getPaint().setColor(color);
+        if (mBackgroundColor != color) {
+            final boolean hadDisc = hasDisc();
+            mBackgroundColor = color;
+            mBackgroundPaint.setColor(color);
+            if (hadDisc != hasDisc()) {
+                applyShadowMode();
+            }
+            invalidate();
         }
     }
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({SHADOW_MODE_ELEVATION, SHADOW_MODE_BITMAP, SHADOW_MODE_NONE})
+    @interface ShadowMode {
+    }
 }
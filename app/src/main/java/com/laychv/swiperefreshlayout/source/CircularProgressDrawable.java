@@ -22,23 +22,23 @@ import android.animation.Animator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.PaintFlagsDrawFilter;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
+import androidx.core.graphics.ColorUtils;
 import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
 
 import com.laychv.swiperefreshlayout.R;
@@ -72,6 +72,14 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
      * Maps to ProgressBar default style.
      */
     public static final int DEFAULT = 1;
+    /**
+     * Redraw the spinner on every frame the display delivers.
+     */
+    public static final int FRAME_RATE_NATIVE = 0;
+    /**
+     * Progress value of a refresh that does not report how far along it is.
+     */
+    public static final float PROGRESS_INDETERMINATE = -1f;
     private static final Interpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
     private static final Interpolator MATERIAL_INTERPOLATOR = new FastOutSlowInInterpolator();
     private static final float CENTER_RADIUS_LARGE = 11f;
@@ -103,10 +111,31 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
      * Full rotation that's done for the animation duration in degrees.
      */
     private static final float GROUP_FULL_ROTATION = 1080f / 5f;
+    /**
+     * Number of turns the indicator makes per animation cycle.
+     */
+    private static final float TURNS_PER_CYCLE = 2.5f;
     /**
      * Maximum length of the progress arc during the animation.
      */
     private static final float MAX_PROGRESS_ARC = .8f;
+    /**
+     * Tolerance in milliseconds when deciding whether a frame is due, so that frame timestamps
+     * landing just short of the interval are not skipped.
+     */
+    private static final float FRAME_INTERVAL_SLOP = 4f;
+    /**
+     * Number of steps per second of the spinner in low power mode.
+     */
+    private static final int LOW_POWER_FRAME_RATE = 4;
+    /**
+     * Rotation of a single step in low power mode, where 1.0 is a full turn.
+     */
+    private static final float LOW_POWER_ROTATION_STEP = 1f / 8f;
+    /**
+     * Number of precomputed colors for the transition from one color of the scheme to the next.
+     */
+    private static final int COLOR_BLEND_STEPS = 16;
 
     /**
      * The indicator ring, used to manage animation state.
@@ -120,7 +149,10 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
      * Rotation applied to ring during the animation, to complete it to a full circle.
      */
     private static final float RING_ROTATION = 1f - (MAX_PROGRESS_ARC - MIN_PROGRESS_ARC);
-    private final Bitmap mBitmap;
+    /**
+     * Draws the indicator, see {@link #setRenderer(IndicatorRenderer)}.
+     */
+    private IndicatorRenderer mRenderer;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
             float mRotationCount;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -135,6 +167,32 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
     private float mRotation;
     private Resources mResources;
     private Animator mAnimator;
+    // Whether the renderer's resources are loaded, see ensureResources()
+    private boolean mResourcesReady;
+    // Minimum time between two redraws while spinning, 0 to redraw every frame
+    private float mFrameIntervalMillis;
+    private long mLastFrameTimeMillis;
+    // Told about every frame drawn while spinning, see setOnFrameDrawnListener()
+    private OnFrameDrawnListener mFrameListener;
+    // Animation time of the last frame drawn while spinning, 0 after a pause
+    private long mLastDrawnFrameTimeMillis;
+    // Whether the spinner steps on scheduled frames instead of the animator, see setLowPower()
+    private boolean mLowPower;
+    private boolean mStepping;
+    // Determinate progress of the refresh, see setProgress()
+    private float mDeterminateProgress = PROGRESS_INDETERMINATE;
+    // Color scheme, null while the renderer draws in its own colors
+    private int[] mColors;
+    // COLOR_BLEND_STEPS colors per transition from mColors[i] to mColors[i + 1]
+    private int[] mColorBlendTable;
+    private int mColorIndex;
+    private int mCurrentColor;
+    private final Runnable mStepRunnable = new Runnable() {
+        @Override
+        public void run() {
+            step();
+        }
+    };
 
     /**
      * @param context application context
@@ -145,12 +203,125 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
 //        mRing = new Ring();
 //        mRing.setColors(COLORS);
 
-        mBitmap = BitmapFactory.decodeResource(mResources, R.drawable.icon_loading_bg);
+        mRenderer = new BitmapIndicatorRenderer(mResources, R.drawable.icon_loading_bg);
 
 //        setStrokeWidth(STROKE_WIDTH);
         setupAnimators();
     }
 
+    /**
+     * Replaces what is drawn for the indicator. The default renderer draws the bitmap icon
+     * {@code R.drawable.icon_loading_bg}.
+     *
+     * @param renderer the renderer to draw the indicator with
+     */
+    public void setRenderer(@NonNull IndicatorRenderer renderer) {
+        if (mRenderer == renderer) {
+            return;
+        }
+        mRenderer.release();
+        mRenderer = renderer;
+        if (mResourcesReady) {
+            mRenderer.prepare();
+        }
+        mRenderer.setRefreshing(isRunning());
+        mRenderer.setProgress(mDeterminateProgress);
+        if (mColors != null) {
+            mRenderer.setColor(mCurrentColor);
+        }
+        invalidateSelf();
+    }
+
+    /**
+     * Returns the renderer the indicator is drawn with.
+     */
+    @NonNull
+    public IndicatorRenderer getRenderer() {
+        return mRenderer;
+    }
+
+    /**
+     * Recreates the renderer's resources and the spinner animator if they were dropped by
+     * {@link #releaseResources()}. Cheap to call when nothing has been released.
+     */
+    public void ensureResources() {
+        mRenderer.prepare();
+        mResourcesReady = true;
+        if (mAnimator == null) {
+            setupAnimators();
+        }
+    }
+
+    /**
+     * Drops the renderer's resources and the spinner animator so that an idle drawable does not
+     * keep them resident. They are rebuilt by {@link #ensureResources()}, which {@link #start()}
+     * calls on demand. Until then nothing is drawn.
+     */
+    public void releaseResources() {
+        stopStepping();
+        if (mAnimator != null) {
+            mAnimator.cancel();
+            mAnimator.removeAllListeners();
+            mAnimator = null;
+        }
+        mRenderer.release();
+        mResourcesReady = false;
+    }
+
+    /**
+     * Returns the number of bytes currently held by the renderer, or 0 if it was released.
+     */
+    public int getRetainedByteCount() {
+        return mRenderer.getRetainedByteCount();
+    }
+
+    /**
+     * Returns how many of the retained bytes live in graphics memory rather than on the heap.
+     */
+    public int getGraphicsByteCount() {
+        return mRenderer.getGraphicsByteCount();
+    }
+
+    /**
+     * Reports how far the indicator has been pulled towards the refresh trigger.
+     *
+     * @param progress drag progress from [0..1]
+     */
+    public void setDragProgress(float progress) {
+        mRenderer.setDragProgress(progress);
+    }
+
+    /**
+     * Shows how far the refresh is along instead of spinning indefinitely. While the progress
+     * is determinate the spinner stops turning and the renderer draws the progress, e.g. as an
+     * arc or by filling the icon, and the drawable is only redrawn when the progress changes.
+     * Reset to indeterminate by {@link #stop()}.
+     *
+     * @param progress progress from [0..1], or {@link #PROGRESS_INDETERMINATE} to spin again
+     */
+    public void setProgress(float progress) {
+        final float determinateProgress = progress < 0f
+                ? PROGRESS_INDETERMINATE : Math.min(1f, progress);
+        if (determinateProgress == mDeterminateProgress) {
+            return;
+        }
+        mDeterminateProgress = determinateProgress;
+        mRenderer.setProgress(determinateProgress);
+        applyVisibilityToAnimator();
+        invalidateSelf();
+    }
+
+    /**
+     * Returns the determinate progress, or {@link #PROGRESS_INDETERMINATE}.
+     */
+    public float getProgress() {
+        return mDeterminateProgress;
+    }
+
+    private boolean isDeterminate() {
+        return mDeterminateProgress >= 0f;
+    }
+
     /**
      * Sets all parameters at once in dp.
      */
@@ -338,6 +509,84 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
 //        return mRing.getEndTrim();
 //    }
 
+    /**
+     * Caps how often the spinner redraws itself while animating. The rotation is still computed
+     * from the animation time, so the spinner turns at the same speed at any frame rate; only
+     * the number of redraws changes. Useful on high refresh rate displays, where a spinner does
+     * not need 90 or 120 redraws per second.
+     *
+     * @param framesPerSecond target frame rate, e.g. 30 or 60, or {@link #FRAME_RATE_NATIVE}
+     *                        to redraw on every display frame
+     */
+    public void setTargetFrameRate(int framesPerSecond) {
+        mFrameIntervalMillis = framesPerSecond > 0 ? 1000f / framesPerSecond : 0f;
+    }
+
+    /**
+     * Reports the time between the frames the spinner draws while it turns on the animator.
+     * Nothing is reported while the spinner is paused, stepping in low power mode or showing
+     * determinate progress, and the pauses themselves are not counted as frames.
+     */
+    void setOnFrameDrawnListener(OnFrameDrawnListener listener) {
+        mFrameListener = listener;
+        mLastDrawnFrameTimeMillis = 0;
+    }
+
+    private void reportFrameDrawn() {
+        if (mStepping || mAnimator == null || !mAnimator.isStarted() || mAnimator.isPaused()) {
+            mLastDrawnFrameTimeMillis = 0;
+            return;
+        }
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        if (mLastDrawnFrameTimeMillis > 0 && now > mLastDrawnFrameTimeMillis) {
+            mFrameListener.onFrameDrawn(now - mLastDrawnFrameTimeMillis, mFrameIntervalMillis);
+        }
+        mLastDrawnFrameTimeMillis = now;
+    }
+
+    /**
+     * Switches the spinner to low power mode. Instead of an animator ticking on every display
+     * frame, the spinner is stepped by a fixed angle {@link #LOW_POWER_FRAME_RATE} times per
+     * second on frames scheduled through the drawable callback, so the process is only woken up
+     * for the frames that are actually drawn. Takes effect the next time the spinner starts.
+     *
+     * @param lowPower whether to step the spinner at a low frame rate
+     */
+    public void setLowPower(boolean lowPower) {
+        mLowPower = lowPower;
+    }
+
+    private void step() {
+        if (!mStepping) {
+            return;
+        }
+        setRotation(mRotation + LOW_POWER_ROTATION_STEP);
+        mRenderer.onFrame(AnimationUtils.currentAnimationTimeMillis());
+        invalidateSelf();
+        scheduleSelf(mStepRunnable, SystemClock.uptimeMillis() + 1000 / LOW_POWER_FRAME_RATE);
+    }
+
+    private void stopStepping() {
+        mStepping = false;
+        unscheduleSelf(mStepRunnable);
+    }
+
+    /**
+     * Returns whether enough time has passed since the last redraw to draw another frame at the
+     * target frame rate.
+     */
+    private boolean isFrameDue() {
+        if (mFrameIntervalMillis <= 0f) {
+            return true;
+        }
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        if (now - mLastFrameTimeMillis < mFrameIntervalMillis - FRAME_INTERVAL_SLOP) {
+            return false;
+        }
+        mLastFrameTimeMillis = now;
+        return true;
+    }
+
     /**
      * Sets the amount of rotation to apply to the progress spinner.
      *
@@ -388,11 +637,63 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
     public void setColorSchemeColors(@NonNull int... colors) {
 //        mRing.setColors(colors);
 //        mRing.setColorIndex(0);
-//        invalidateSelf();
+        if (colors.length == 0) {
+            return;
+        }
+        mColors = colors.clone();
+        // Blended ahead of time so that cycling costs a table lookup per frame
+        mColorBlendTable = new int[mColors.length * COLOR_BLEND_STEPS];
+        for (int i = 0; i < mColors.length; i++) {
+            final int from = mColors[i];
+            final int to = mColors[(i + 1) % mColors.length];
+            for (int step = 0; step < COLOR_BLEND_STEPS; step++) {
+                mColorBlendTable[i * COLOR_BLEND_STEPS + step] = ColorUtils.blendARGB(from, to,
+                        step / (float) (COLOR_BLEND_STEPS - 1));
+            }
+        }
+        mColorIndex = 0;
+        mCurrentColor = mColors[0];
+        mRenderer.setColor(mCurrentColor);
+        invalidateSelf();
+    }
+
+    /**
+     * Blends the current color into the next color of the scheme over the last part of each
+     * animation cycle, like the Material spinner does.
+     */
+    private void updateColor(float interpolatedTime) {
+        if (mColors == null || mColors.length < 2) {
+            return;
+        }
+        int step = 0;
+        if (interpolatedTime > COLOR_CHANGE_OFFSET) {
+            final float blend = (interpolatedTime - COLOR_CHANGE_OFFSET)
+                    / (1f - COLOR_CHANGE_OFFSET);
+            step = Math.min(COLOR_BLEND_STEPS - 1, (int) (blend * COLOR_BLEND_STEPS));
+        }
+        setCurrentColor(mColorBlendTable[mColorIndex * COLOR_BLEND_STEPS + step]);
+    }
+
+    private void setCurrentColor(int color) {
+        if (mCurrentColor != color) {
+            mCurrentColor = color;
+            mRenderer.setColor(color);
+        }
+    }
+
+    private void resetColor() {
+        mColorIndex = 0;
+        if (mColors != null) {
+            setCurrentColor(mColors[0]);
+        }
     }
 
     @Override
     public void draw(Canvas canvas) {
+        // Loading resources here would decode or inflate inside a draw pass
+        if (!mResourcesReady) {
+            return;
+        }
         final Rect bounds = getBounds();
         canvas.save();
 //        canvas.rotate(mRotation, bounds.exactCenterX(), bounds.exactCenterY());
@@ -402,16 +703,13 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
         endAngle = (mEndTrim + mRotation) * 360;
         float sweepAngle = endAngle - startAngle;
 
-        // 抗锯齿
-        canvas.setDrawFilter(new PaintFlagsDrawFilter(0, Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG));
-
-        Paint paint = new Paint();
-        paint.setAntiAlias(true);
-        paint.setDither(true);
-        canvas.rotate(startAngle + sweepAngle + 45f, bounds.exactCenterX(), bounds.exactCenterY());// 确保图标是垂直的
-        canvas.drawBitmap(mBitmap, 10, 10, paint);
+        mRenderer.draw(canvas, bounds,
+                isDeterminate() ? 0f : startAngle + sweepAngle + 45f);
 
         canvas.restore();
+        if (mFrameListener != null) {
+            reportFrameDrawn();
+        }
     }
 
     @Override
@@ -443,7 +741,43 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public boolean isRunning() {
-        return mAnimator.isRunning();
+        return mStepping || (mAnimator != null && mAnimator.isRunning());
+    }
+
+    /**
+     * Pauses the spinner animator while the drawable is not visible and resumes it where it left
+     * off once it is visible again, so a hidden spinner does not keep redrawing. The restart flag
+     * is ignored: the rotation always resumes rather than starting over.
+     */
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (changed) {
+            applyVisibilityToAnimator();
+        }
+        return changed;
+    }
+
+    private void applyVisibilityToAnimator() {
+        // Nothing spins while hidden, or while the progress is determinate
+        final boolean spinning = isVisible() && !isDeterminate();
+        mLastDrawnFrameTimeMillis = 0;
+        if (mStepping) {
+            unscheduleSelf(mStepRunnable);
+            if (spinning) {
+                scheduleSelf(mStepRunnable,
+                        SystemClock.uptimeMillis() + 1000 / LOW_POWER_FRAME_RATE);
+            }
+            return;
+        }
+        if (mAnimator == null || !mAnimator.isStarted()) {
+            return;
+        }
+        if (spinning) {
+            mAnimator.resume();
+        } else {
+            mAnimator.pause();
+        }
     }
 
     /**
@@ -451,7 +785,22 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
      */
     @Override
     public void start() {
+        if (mLowPower) {
+            mRenderer.prepare();
+            mResourcesReady = true;
+            if (mAnimator != null) {
+                mAnimator.cancel();
+            }
+            mRenderer.setRefreshing(true);
+            stopStepping();
+            mStepping = true;
+            applyVisibilityToAnimator();
+            return;
+        }
+        stopStepping();
+        ensureResources();
         mAnimator.cancel();
+        mRenderer.setRefreshing(true);
 //        mRing.storeOriginals();
 //        // Already showing some part of the ring
 //        if (mRing.getEndTrim() != mRing.getStartTrim()) {
@@ -465,6 +814,40 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
             mAnimator.setDuration(ANIMATION_DURATION);
             mAnimator.start();
         }
+        // Started while hidden, e.g. a refresh set from a stopped screen, or with determinate
+        // progress already reported
+        applyVisibilityToAnimator();
+    }
+
+    /**
+     * Returns how far the spinner has turned since it was started, in turns. Passing it to
+     * {@link #start(float)} resumes the spinner at the same phase, e.g. after a configuration
+     * change.
+     *
+     * @return rotation phase of the spinner
+     */
+    public float getRotationPhase() {
+        return mRotation;
+    }
+
+    /**
+     * Starts the animation for the spinner at the given rotation phase instead of from the
+     * beginning.
+     *
+     * @param rotationPhase rotation phase in turns, as returned by {@link #getRotationPhase()}
+     */
+    public void start(float rotationPhase) {
+        start();
+        if (mStepping || mFinishing) {
+            setRotation(rotationPhase);
+        } else {
+            final float cycles = rotationPhase / TURNS_PER_CYCLE;
+            mRotationCount = (float) Math.floor(cycles);
+            // Moves the running animator, which applies the rotation on its next update
+            ((ValueAnimator) mAnimator).setCurrentFraction(cycles - mRotationCount);
+            setRotation(rotationPhase);
+        }
+        invalidateSelf();
     }
 
     /**
@@ -472,8 +855,18 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
      */
     @Override
     public void stop() {
-        mAnimator.cancel();
+        stopStepping();
+        if (isDeterminate()) {
+            mDeterminateProgress = PROGRESS_INDETERMINATE;
+            mRenderer.setProgress(PROGRESS_INDETERMINATE);
+        }
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+        mRenderer.setRefreshing(false);
+        mRenderer.setDragProgress(0f);
         setRotation(0);
+        resetColor();
 //        mRing.setShowArrow(false);
 //        mRing.setColorIndex(0);
 //        mRing.resetOriginals();
@@ -533,7 +926,7 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
 
             final float rotation = startingRotation + (RING_ROTATION * interpolatedTime);
             float groupRotation = GROUP_FULL_ROTATION * (interpolatedTime + mRotationCount);
-            float rot = 2.5f * (interpolatedTime + mRotationCount); // 旋转速度
+            float rot = TURNS_PER_CYCLE * (interpolatedTime + mRotationCount); // 旋转速度
 
 //            ring.setStartTrim(startTrim);
 //            ring.setEndTrim(endTrim);
@@ -548,10 +941,17 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
-                float interpolatedTime = (float) animation.getAnimatedValue();
+                // Same as the animated value with a linear interpolator, without boxing it
+                final float interpolatedTime = animation.getAnimatedFraction();
 //                updateRingColor(interpolatedTime, ring);
+                if (!mFinishing) {
+                    updateColor(interpolatedTime);
+                }
                 applyTransformation(interpolatedTime, false);
-                invalidateSelf();
+                mRenderer.onFrame(AnimationUtils.currentAnimationTimeMillis());
+                if (isFrameDue()) {
+                    invalidateSelf();
+                }
             }
         });
         animator.setRepeatCount(ValueAnimator.INFINITE);
@@ -562,6 +962,7 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
             @Override
             public void onAnimationStart(Animator animator) {
                 mRotationCount = 0;
+                mLastFrameTimeMillis = 0;
             }
 
             @Override
@@ -589,12 +990,28 @@ public class CircularProgressDrawable extends Drawable implements Animatable {
 //                    ring.setShowArrow(false);
                 } else {
                     mRotationCount = mRotationCount + 1;
+                    if (mColors != null) {
+                        mColorIndex = (mColorIndex + 1) % mColors.length;
+                    }
                 }
             }
         });
         mAnimator = animator;
     }
 
+    /**
+     * Listener for the frames the spinner draws, see
+     * {@link #setOnFrameDrawnListener(OnFrameDrawnListener)}.
+     */
+    interface OnFrameDrawnListener {
+        /**
+         * @param frameDurationMillis time since the previous frame the spinner drew
+         * @param frameIntervalMillis minimum time between two redraws set by
+         *                            {@link #setTargetFrameRate(int)}, 0 for every display frame
+         */
+        void onFrameDrawn(long frameDurationMillis, float frameIntervalMillis);
+    }
+
     @RestrictTo(LIBRARY_GROUP)
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LARGE, DEFAULT})
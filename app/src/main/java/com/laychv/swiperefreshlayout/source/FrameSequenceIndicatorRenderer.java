@@ -0,0 +1,468 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the indicator as a frame-by-frame animation, e.g. a branded loading sequence. While
+ * dragging, the drag progress scrubs through the sequence, and determinate refresh progress
+ * shows the frame at that point of the sequence.
+ *
+ * <p>Frames are streamed from a packed asset: a sequence of records, each made of a big-endian
+ * 32 bit length followed by that many bytes of an encoded image (PNG, WebP, ...). The sequence
+ * loops when the end of the asset is reached.
+ *
+ * <p>A background thread decodes ahead into a pool of {@link #POOL_SIZE} bitmaps which are
+ * reused through {@link BitmapFactory.Options#inBitmap}, so memory stays at a fixed number of
+ * frame buffers regardless of the sequence length. The UI thread never waits for the decoder:
+ * if the next frame is not ready in time the current one stays on screen and late frames are
+ * dropped. The frame shown is picked from the frame time, so the animation plays at the same
+ * speed however often it is drawn. Every frame, the first one included, is decoded on the
+ * background thread, so nothing is drawn until the first frame is ready.
+ */
+public class FrameSequenceIndicatorRenderer implements IndicatorRenderer {
+    // One frame on screen, one possibly still read by the RenderThread, one being decoded
+    static final int POOL_SIZE = 3;
+
+    private static final String LOG_TAG = FrameSequenceIndicatorRenderer.class.getSimpleName();
+    // How long the decoder thread outlives a release, so that the next prepare reuses it
+    private static final long DECODER_KEEP_ALIVE_SECONDS = 10;
+
+    private final AssetManager mAssets;
+    private final String mAssetName;
+    private final long mFrameDurationMillis;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // Runs the decoder of every prepare/release cycle, on a single thread
+    private final ThreadPoolExecutor mExecutor;
+    private Decoder mDecoder;
+    // Frame on screen, and whether it has been drawn yet
+    private Bitmap mCurrent;
+    private boolean mCurrentDrawn;
+    // Frame drawn before mCurrent, which a display list may still reference
+    private Bitmap mPrevious;
+    private boolean mRefreshing;
+    // Determinate progress of the refresh, or negative while the sequence plays
+    private float mProgress = -1f;
+    private long mStartTimeMillis = -1;
+    private long mShownFrameNumber;
+
+    /**
+     * @param assets              assets to stream the sequence from
+     * @param assetName           name of the packed sequence asset
+     * @param frameDurationMillis how long each frame is shown
+     */
+    public FrameSequenceIndicatorRenderer(@NonNull AssetManager assets, @NonNull String assetName,
+                                          long frameDurationMillis) {
+        mAssets = assets;
+        mAssetName = assetName;
+        mFrameDurationMillis = Math.max(1, frameDurationMillis);
+        mExecutor = new ThreadPoolExecutor(1, 1, DECODER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "FrameSequenceDecoder");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void prepare() {
+        if (mDecoder != null) {
+            return;
+        }
+        mDecoder = new Decoder(mAssets, mAssetName);
+        mDecoder.start(mExecutor, mProgress >= 0f ? 0 : mRefreshing ? Decoder.PLAY : 0);
+    }
+
+    @Override
+    public void release() {
+        if (mDecoder != null) {
+            mDecoder.stop();
+            mDecoder = null;
+        }
+        mCurrent = null;
+        mPrevious = null;
+        mCurrentDrawn = false;
+    }
+
+    @Override
+    public int getRetainedByteCount() {
+        return mDecoder != null ? mDecoder.mRetainedBytes : 0;
+    }
+
+    @Override
+    public int getGraphicsByteCount() {
+        // Frames are decoded into software bitmaps so that they can be reused
+        return 0;
+    }
+
+    @Override
+    public void setDragProgress(float progress) {
+        if (mRefreshing || mDecoder == null) {
+            return;
+        }
+        seekToFraction(progress);
+        showLatestFrame();
+    }
+
+    @Override
+    public void setRefreshing(boolean refreshing) {
+        mRefreshing = refreshing;
+        mStartTimeMillis = -1;
+        mShownFrameNumber = 0;
+        if (mDecoder != null && mProgress < 0f) {
+            mDecoder.seek(refreshing ? Decoder.PLAY : 0);
+        }
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        final boolean wasDeterminate = mProgress >= 0f;
+        mProgress = progress;
+        if (mDecoder == null) {
+            return;
+        }
+        if (progress >= 0f) {
+            // The drawable stops calling onFrame(), so show the frame at that point instead
+            seekToFraction(progress);
+            showLatestFrame();
+        } else if (wasDeterminate) {
+            // Play on from the start of the sequence
+            mStartTimeMillis = -1;
+            mShownFrameNumber = 0;
+            mDecoder.seek(mRefreshing ? Decoder.PLAY : 0);
+        }
+    }
+
+    /**
+     * Makes the decoder decode the frame at the given fraction of the sequence. Does nothing
+     * until the decoder knows how many frames there are.
+     */
+    private void seekToFraction(float fraction) {
+        final int frameCount = mDecoder.mFrameCount;
+        if (frameCount > 0) {
+            final float clamped = Math.min(1f, Math.max(0f, fraction));
+            mDecoder.seek(Math.min(frameCount - 1, (int) (clamped * frameCount)));
+        }
+    }
+
+    @Override
+    public void setColor(int color) {
+        // Frames are drawn in their own colors
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+        if (mDecoder == null) {
+            return;
+        }
+        if (mStartTimeMillis < 0) {
+            mStartTimeMillis = frameTimeMillis;
+        }
+        final long dueFrameNumber = (frameTimeMillis - mStartTimeMillis) / mFrameDurationMillis;
+        while (mShownFrameNumber < dueFrameNumber || mCurrent == null) {
+            final Bitmap next = mDecoder.mReady.poll();
+            if (next == null) {
+                // The decoder is behind: keep the current frame and drop the ones that are late
+                mShownFrameNumber = Math.max(mShownFrameNumber, dueFrameNumber);
+                break;
+            }
+            showFrame(next);
+            mShownFrameNumber++;
+        }
+    }
+
+    /**
+     * Shows the most recent frame the decoder has handed over, e.g. the one a drag seeked to.
+     */
+    private void showLatestFrame() {
+        Bitmap next;
+        while ((next = mDecoder.mReady.poll()) != null) {
+            showFrame(next);
+        }
+    }
+
+    private void showFrame(Bitmap frame) {
+        if (mCurrentDrawn) {
+            mDecoder.recycle(mPrevious);
+            mPrevious = mCurrent;
+        } else {
+            // Never drawn, so nothing can still be reading it
+            mDecoder.recycle(mCurrent);
+        }
+        mCurrent = frame;
+        mCurrentDrawn = false;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation) {
+        if (mDecoder != null && (!mRefreshing || mProgress >= 0f)) {
+            if (mProgress >= 0f) {
+                // The frame count may only have become known since the progress was set
+                seekToFraction(mProgress);
+            }
+            // A seeked frame may have arrived after the last drag event or progress update
+            showLatestFrame();
+        }
+        if (mCurrent == null) {
+            return;
+        }
+        canvas.drawBitmap(mCurrent, null, bounds, mPaint);
+        mCurrentDrawn = true;
+    }
+
+    @Override
+    public boolean allocatesWhileDrawing() {
+        return false;
+    }
+
+    @Override
+    public boolean canRunOnRenderThread() {
+        return false;
+    }
+
+    /**
+     * Decodes frames ahead of time on the renderer's executor. Each instance is used for a single
+     * prepare/release cycle, so a decoder that is still winding down cannot hand stale frames
+     * to the next one.
+     *
+     * <p>The decoder either plays the sequence, decoding frames in order, or decodes the single
+     * frame it was seeked to and waits for the next seek.
+     */
+    private static final class Decoder implements Runnable {
+        // Value of mSeekFrame while playing the sequence
+        static final int PLAY = -1;
+
+        final BlockingQueue<Bitmap> mReady = new ArrayBlockingQueue<>(POOL_SIZE - 1);
+        final BlockingQueue<Bitmap> mFree = new ArrayBlockingQueue<>(POOL_SIZE);
+        volatile int mRetainedBytes;
+        // Number of frames, 0 until the decoder has indexed the sequence
+        volatile int mFrameCount;
+        private final AssetManager mAssets;
+        private final String mAssetName;
+        private final BitmapFactory.Options mOptions = new BitmapFactory.Options();
+        private volatile boolean mRunning;
+        // Frame to decode, or PLAY
+        private volatile int mSeekFrame;
+        private Future<?> mFuture;
+        // Only touched by the decoder thread
+        private int mAllocated;
+        private int mDecodedSeekFrame = PLAY;
+        private long[] mOffsets;
+        private int[] mLengths;
+        private DataInputStream mIn;
+        private long mPosition;
+        private byte[] mBuffer = new byte[0];
+
+        Decoder(AssetManager assets, String assetName) {
+            mAssets = assets;
+            mAssetName = assetName;
+            // Mutable so that every frame can be decoded into again
+            mOptions.inMutable = true;
+        }
+
+        void start(ThreadPoolExecutor executor, int seekFrame) {
+            mRunning = true;
+            mSeekFrame = seekFrame;
+            mFuture = executor.submit(this);
+        }
+
+        void stop() {
+            mRunning = false;
+            mFuture.cancel(true /* mayInterruptIfRunning */);
+            mReady.clear();
+            mFree.clear();
+        }
+
+        /**
+         * Makes the decoder decode the given frame next and then wait, or play the sequence again
+         * if the frame is {@link #PLAY}.
+         */
+        void seek(int frame) {
+            if (mSeekFrame != frame) {
+                mSeekFrame = frame;
+                synchronized (this) {
+                    notify();
+                }
+            }
+        }
+
+        void recycle(Bitmap frame) {
+            if (frame != null && mRunning) {
+                mFree.offer(frame);
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                index();
+                if (mFrameCount == 0) {
+                    Log.e(LOG_TAG, "No frames in " + mAssetName);
+                    return;
+                }
+                int next = 0;
+                while (mRunning) {
+                    final int seekFrame = mSeekFrame;
+                    final int index;
+                    if (seekFrame == PLAY) {
+                        index = next;
+                        mDecodedSeekFrame = PLAY;
+                    } else if (seekFrame != mDecodedSeekFrame) {
+                        index = seekFrame;
+                        mDecodedSeekFrame = seekFrame;
+                    } else {
+                        awaitSeek(seekFrame);
+                        continue;
+                    }
+                    // Playing resumes after the frame last shown
+                    next = (index + 1) % mFrameCount;
+                    final Bitmap frame = decode(index);
+                    if (frame != null) {
+                        mReady.put(frame);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Failed to read " + mAssetName, e);
+            } finally {
+                closeStream();
+            }
+        }
+
+        private synchronized void awaitSeek(int seekFrame) throws InterruptedException {
+            while (mRunning && mSeekFrame == seekFrame) {
+                wait();
+            }
+        }
+
+        /**
+         * Reads the offset and length of every record, so that any frame can be decoded without
+         * decoding the ones before it.
+         */
+        private void index() throws IOException {
+            long[] offsets = new long[16];
+            int[] lengths = new int[16];
+            int count = 0;
+            openStream();
+            while (true) {
+                final int length;
+                try {
+                    length = mIn.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                mPosition += 4;
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                offsets[count] = mPosition;
+                lengths[count] = length;
+                count++;
+                skipFully(length);
+            }
+            mOffsets = offsets;
+            mLengths = lengths;
+            mFrameCount = count;
+        }
+
+        private void openStream() throws IOException {
+            closeStream();
+            mIn = new DataInputStream(new BufferedInputStream(
+                    mAssets.open(mAssetName, AssetManager.ACCESS_STREAMING)));
+            mPosition = 0;
+        }
+
+        private void closeStream() {
+            if (mIn != null) {
+                try {
+                    mIn.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+                mIn = null;
+            }
+        }
+
+        private void skipFully(long count) throws IOException {
+            final InputStream in = mIn;
+            while (count > 0) {
+                final long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                count -= skipped;
+                mPosition += skipped;
+            }
+        }
+
+        private Bitmap decode(int index) throws IOException, InterruptedException {
+            Bitmap reuse = mFree.poll();
+            if (reuse == null) {
+                if (mAllocated < POOL_SIZE) {
+                    mAllocated++;
+                } else {
+                    // Every buffer is in use, wait for the UI thread to hand one back
+                    reuse = mFree.take();
+                }
+            }
+            // Playing reads straight on, seeking backwards starts over from the beginning
+            if (mIn == null || mPosition > mOffsets[index]) {
+                openStream();
+            }
+            skipFully(mOffsets[index] - mPosition);
+            final int length = mLengths[index];
+            if (mBuffer.length < length) {
+                mBuffer = new byte[length];
+            }
+            mIn.readFully(mBuffer, 0, length);
+            mPosition += length;
+            mOptions.inBitmap = reuse;
+            Bitmap frame;
+            try {
+                frame = BitmapFactory.decodeByteArray(mBuffer, 0, length, mOptions);
+            } catch (IllegalArgumentException e) {
+                // The frame does not fit into the pooled bitmap, replace it
+                mOptions.inBitmap = null;
+                frame = BitmapFactory.decodeByteArray(mBuffer, 0, length, mOptions);
+            }
+            if (frame != reuse) {
+                mRetainedBytes += (frame != null ? frame.getAllocationByteCount() : 0)
+                        - (reuse != null ? reuse.getAllocationByteCount() : 0);
+            }
+            if (frame == null) {
+                // Either the reserved slot or the reused buffer is gone
+                mAllocated--;
+            }
+            return frame;
+        }
+    }
+}
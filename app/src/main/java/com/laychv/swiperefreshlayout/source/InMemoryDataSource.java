@@ -0,0 +1,82 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link RefreshOrchestrator.DataSource} backed by a map in memory, answering after a
+ * configurable latency. Useful to exercise an orchestrator without a real backend, e.g. in the
+ * demo or in tests: {@link #getRequestCount()} shows how many batched requests were made.
+ *
+ * <p>Must be used on the main thread.
+ *
+ * @param <T> type of the slice stored for each key
+ */
+public class InMemoryDataSource<T> implements RefreshOrchestrator.DataSource<T> {
+    private final Map<String, T> mSlices = new HashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private long mLatencyMillis;
+    private int mRequestCount;
+
+    /**
+     * Stores the slice returned for the given key.
+     */
+    public void put(@NonNull String key, T slice) {
+        mSlices.put(key, slice);
+    }
+
+    /**
+     * Removes the slice of the given key, so that loading it fails.
+     */
+    public void remove(@NonNull String key) {
+        mSlices.remove(key);
+    }
+
+    /**
+     * Sets how long each request takes to answer.
+     *
+     * @param latencyMillis latency in milliseconds
+     */
+    public void setLatency(long latencyMillis) {
+        mLatencyMillis = Math.max(0, latencyMillis);
+    }
+
+    /**
+     * @return How many requests have been made so far.
+     */
+    public int getRequestCount() {
+        return mRequestCount;
+    }
+
+    @NonNull
+    @Override
+    public RefreshOrchestrator.Cancellable load(
+            @NonNull final List<String> keys,
+            @NonNull final RefreshOrchestrator.BatchCallback<T> callback) {
+        mRequestCount++;
+        final Runnable answer = new Runnable() {
+            @Override
+            public void run() {
+                for (String key : keys) {
+                    if (mSlices.containsKey(key)) {
+                        callback.onSlice(key, mSlices.get(key));
+                    }
+                }
+                callback.onComplete(null);
+            }
+        };
+        mHandler.postDelayed(answer, mLatencyMillis);
+        return new RefreshOrchestrator.Cancellable() {
+            @Override
+            public void cancel() {
+                mHandler.removeCallbacks(answer);
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+/**
+ * Draws the refresh indicator for {@link CircularProgressDrawable}. The drawable owns the
+ * animation and drives the renderer with the drag progress, the refresh state and the frame
+ * time; the renderer only decides what a frame looks like.
+ *
+ * <p>Renderers differ a lot in cost. {@link #allocatesWhileDrawing()} and
+ * {@link #canRunOnRenderThread()} describe that cost so that callers can pick the cheapest
+ * renderer for a device, see {@link SwipeRefreshLayout#setIndicatorRenderer(IndicatorRenderer)}.
+ *
+ * <p>All methods are called on the UI thread.
+ */
+public interface IndicatorRenderer {
+
+    /**
+     * Loads whatever the renderer needs to draw, e.g. decodes its bitmaps. Called before the
+     * first frame and again after {@link #release()}. Must be cheap when nothing was released.
+     */
+    void prepare();
+
+    /**
+     * Drops the resources loaded by {@link #prepare()} while the indicator is idle.
+     */
+    void release();
+
+    /**
+     * Returns the number of bytes the renderer currently keeps resident.
+     */
+    int getRetainedByteCount();
+
+    /**
+     * Returns how many of the bytes counted by {@link #getRetainedByteCount()} live in graphics
+     * memory, e.g. as hardware bitmaps, rather than on the heap.
+     */
+    int getGraphicsByteCount();
+
+    /**
+     * Called while the indicator is being pulled.
+     *
+     * @param progress how far the indicator has been pulled towards the refresh trigger, from
+     *                 [0..1]
+     */
+    void setDragProgress(float progress);
+
+    /**
+     * Called when the indicator starts or stops showing refresh progress.
+     */
+    void setRefreshing(boolean refreshing);
+
+    /**
+     * Called when the refresh reports how far along it is, see
+     * {@link CircularProgressDrawable#setProgress(float)}. While the progress is determinate the
+     * drawable stops spinning, no longer calls {@link #onFrame(long)} and draws with a rotation
+     * of 0, so renderers that animate on their own should show the progress instead.
+     *
+     * @param progress progress of the refresh from [0..1], or a negative value while it is
+     *                 indeterminate
+     */
+    void setProgress(float progress);
+
+    /**
+     * Called with the current color of the color scheme, see
+     * {@link CircularProgressDrawable#setColorSchemeColors(int...)}. While the spinner turns the
+     * color blends into the next one of the scheme, so this may be called on every frame and
+     * should be cheap. Renderers drawn in their own colors may ignore it.
+     *
+     * @param color an ARGB color
+     */
+    void setColor(@ColorInt int color);
+
+    /**
+     * Called on every animation frame while refreshing, before the frame is drawn.
+     *
+     * @param frameTimeMillis animation time of the frame, in the
+     *                        {@link android.view.animation.AnimationUtils#currentAnimationTimeMillis()}
+     *                        time base
+     */
+    void onFrame(long frameTimeMillis);
+
+    /**
+     * Draws the current frame.
+     *
+     * @param canvas   the canvas to draw into; its state is restored by the caller
+     * @param bounds   bounds of the indicator
+     * @param rotation rotation of the spinner in degrees, which renderers that do not rotate
+     *                 may ignore
+     */
+    void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation);
+
+    /**
+     * Returns {@code true} if {@link #draw(Canvas, Rect, float)} or {@link #onFrame(long)}
+     * allocate objects once the renderer is prepared.
+     */
+    boolean allocatesWhileDrawing();
+
+    /**
+     * Returns {@code true} if frames only differ by their rotation. The recorded display list can
+     * then be replayed and rotated by the RenderThread instead of being redrawn on the UI thread.
+     */
+    boolean canRunOnRenderThread();
+}
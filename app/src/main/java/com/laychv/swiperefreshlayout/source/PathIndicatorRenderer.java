@@ -0,0 +1,130 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.core.graphics.PathParser;
+
+/**
+ * Renders the indicator as a rotating icon described by SVG path data. The path is parsed once
+ * and only rescaled when the size of the indicator changes, so there is no bitmap to keep in
+ * memory or resample, and the icon is sharp at every density.
+ */
+public class PathIndicatorRenderer implements IndicatorRenderer {
+    // Alpha of the part of the icon not yet filled by determinate progress
+    private static final int UNFILLED_ALPHA = 0x4D;
+
+    private final Path mIconPath;
+    private final RectF mViewport;
+    private final Path mScaledPath = new Path();
+    private final Matrix mMatrix = new Matrix();
+    private final RectF mTarget = new RectF();
+    private final Paint mPaint;
+    private int mColor;
+    private int mScaledWidth = -1;
+    private int mScaledHeight = -1;
+    // Progress of the refresh, negative while indeterminate
+    private float mProgress = -1f;
+
+    /**
+     * @param pathData       SVG path data of the icon, as in a vector drawable's
+     *                       {@code android:pathData}
+     * @param viewportWidth  width of the viewport the path data is expressed in
+     * @param viewportHeight height of the viewport the path data is expressed in
+     * @param color          fill color of the icon
+     */
+    public PathIndicatorRenderer(@NonNull String pathData, float viewportWidth,
+                                 float viewportHeight, @ColorInt int color) {
+        mIconPath = PathParser.createPathFromPathData(pathData);
+        mViewport = new RectF(0, 0, viewportWidth, viewportHeight);
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setColor(color);
+        mColor = color;
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public int getRetainedByteCount() {
+        return 0;
+    }
+
+    @Override
+    public int getGraphicsByteCount() {
+        return 0;
+    }
+
+    @Override
+    public void setDragProgress(float progress) {
+    }
+
+    @Override
+    public void setRefreshing(boolean refreshing) {
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        mProgress = progress;
+    }
+
+    @Override
+    public void setColor(int color) {
+        mColor = color;
+        mPaint.setColor(color);
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation) {
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (width != mScaledWidth || height != mScaledHeight) {
+            // Fit the viewport into a square centered at the origin of the bounds
+            final float size = Math.min(width, height);
+            final float left = (width - size) / 2f;
+            final float top = (height - size) / 2f;
+            mTarget.set(left, top, left + size, top + size);
+            mMatrix.setRectToRect(mViewport, mTarget, Matrix.ScaleToFit.CENTER);
+            mIconPath.transform(mMatrix, mScaledPath);
+            mScaledWidth = width;
+            mScaledHeight = height;
+        }
+        canvas.rotate(rotation, bounds.exactCenterX(), bounds.exactCenterY());
+        canvas.translate(bounds.left, bounds.top);
+        if (mProgress >= 0f) {
+            // Determinate: the icon fills up from the bottom
+            mPaint.setAlpha(Color.alpha(mColor) * UNFILLED_ALPHA / 0xFF);
+            canvas.drawPath(mScaledPath, mPaint);
+            mPaint.setColor(mColor);
+            canvas.clipRect(0, height - height * mProgress, width, height);
+        }
+        canvas.drawPath(mScaledPath, mPaint);
+    }
+
+    @Override
+    public boolean allocatesWhileDrawing() {
+        return false;
+    }
+
+    @Override
+    public boolean canRunOnRenderThread() {
+        return true;
+    }
+}
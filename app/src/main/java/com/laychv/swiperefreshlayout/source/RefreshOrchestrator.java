@@ -0,0 +1,407 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinates the refreshes of several {@link SwipeRefreshLayout}s that load from the same
+ * backend, e.g. the cards of a dashboard.
+ *
+ * <p>Each layout is registered under a key. Refreshes requested within a short window, whether
+ * by the swipe gesture or by {@link #refresh(String)}, are collected into a single request to
+ * the {@link DataSource}, ordered by priority. As the slice for each key arrives it is handed to
+ * that key's {@link SliceListener} and the layout's indicator is stopped. A high priority
+ * request sends the pending batch right away instead of waiting for the window to close.
+ *
+ * <p>All methods must be called on the main thread. The data source may report back from any
+ * thread; results are delivered to the listeners on the main thread.
+ *
+ * @param <T> type of the slice loaded for each key
+ */
+public class RefreshOrchestrator<T> {
+    // Loaded after the other slices of a batch
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    // Sends the pending batch right away
+    public static final int PRIORITY_HIGH = 1;
+
+    // Default time in milliseconds refresh requests are collected for before being sent
+    private static final long DEFAULT_BATCH_WINDOW = 100;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PENDING = 1;
+    private static final int STATE_LOADING = 2;
+
+    private final DataSource<T> mDataSource;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Registration> mRegistrations = new HashMap<>();
+    private final ArrayList<Registration> mPending = new ArrayList<>();
+    private final Comparator<Registration> mByPriority = new Comparator<Registration>() {
+        @Override
+        public int compare(Registration a, Registration b) {
+            return Integer.compare(b.mPriority, a.mPriority);
+        }
+    };
+    private long mBatchWindowMillis = DEFAULT_BATCH_WINDOW;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param dataSource backend the batched requests are sent to
+     */
+    public RefreshOrchestrator(@NonNull DataSource<T> dataSource) {
+        mDataSource = dataSource;
+    }
+
+    /**
+     * Sets how long refresh requests are collected before being sent as one batch.
+     *
+     * @param windowMillis batch window in milliseconds, 0 to send on the next loop
+     */
+    public void setBatchWindow(long windowMillis) {
+        mBatchWindowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * Registers a layout under the given key, replacing any layout registered under it before.
+     * The orchestrator becomes the layout's {@link SwipeRefreshLayout.OnRefreshListener}.
+     *
+     * @param key      key of the slice the layout shows
+     * @param priority one of {@link #PRIORITY_LOW}, {@link #PRIORITY_NORMAL} or
+     *                 {@link #PRIORITY_HIGH}
+     * @param layout   layout whose refreshes are batched
+     * @param listener listener the slice is delivered to
+     */
+    public void register(@NonNull String key, int priority, @NonNull SwipeRefreshLayout layout,
+                         @NonNull SliceListener<T> listener) {
+        unregister(key);
+        final Registration registration = new Registration(key, priority, layout, listener);
+        mRegistrations.put(key, registration);
+        layout.setOnRefreshListener(registration);
+    }
+
+    /**
+     * Unregisters the layout registered under the given key, cancelling its refresh if one is
+     * pending or loading.
+     */
+    public void unregister(@NonNull String key) {
+        final Registration registration = mRegistrations.remove(key);
+        if (registration != null) {
+            cancel(registration);
+            registration.mLayout.setOnRefreshListener(null);
+        }
+    }
+
+    /**
+     * Refreshes the slice of the given key as if its layout had been pulled, showing the
+     * layout's indicator until the slice arrives.
+     */
+    public void refresh(@NonNull String key) {
+        final Registration registration = mRegistrations.get(key);
+        if (registration != null && registration.mState == STATE_IDLE) {
+            registration.mLayout.setRefreshing(true);
+            enqueue(registration);
+        }
+    }
+
+    /**
+     * Refreshes every registered slice in a single batch.
+     */
+    public void refreshAll() {
+        for (Registration registration : mRegistrations.values()) {
+            refresh(registration.mKey);
+        }
+    }
+
+    /**
+     * Cancels the refresh of the given key and stops its layout's indicator. The request to the
+     * data source is cancelled once none of the slices it loads is wanted anymore.
+     */
+    public void cancel(@NonNull String key) {
+        final Registration registration = mRegistrations.get(key);
+        if (registration != null) {
+            cancel(registration);
+        }
+    }
+
+    /**
+     * Cancels every pending and loading refresh.
+     */
+    public void cancelAll() {
+        for (Registration registration : mRegistrations.values()) {
+            cancel(registration);
+        }
+    }
+
+    void enqueue(Registration registration) {
+        if (registration.mState != STATE_IDLE) {
+            // Already part of a batch, which will deliver it
+            return;
+        }
+        registration.mState = STATE_PENDING;
+        mPending.add(registration);
+        if (registration.mPriority >= PRIORITY_HIGH) {
+            mHandler.removeCallbacks(mFlushRunnable);
+            flush();
+        } else if (mPending.size() == 1) {
+            mHandler.postDelayed(mFlushRunnable, mBatchWindowMillis);
+        }
+    }
+
+    private void flush() {
+        if (mPending.isEmpty()) {
+            return;
+        }
+        // Stable, so requests of the same priority keep their order
+        Collections.sort(mPending, mByPriority);
+        final Batch batch = new Batch(mPending.size());
+        final List<String> keys = new ArrayList<>(mPending.size());
+        for (Registration registration : mPending) {
+            registration.mState = STATE_LOADING;
+            registration.mBatch = batch;
+            batch.mRegistrations.add(registration);
+            keys.add(registration.mKey);
+        }
+        mPending.clear();
+        final Cancellable request = mDataSource.load(keys, batch);
+        if (batch.mRemaining == 0) {
+            // Everything was delivered or cancelled while loading synchronously
+            return;
+        }
+        batch.mRequest = request;
+    }
+
+    private void cancel(Registration registration) {
+        if (registration.mState == STATE_PENDING) {
+            mPending.remove(registration);
+            if (mPending.isEmpty()) {
+                mHandler.removeCallbacks(mFlushRunnable);
+            }
+        } else if (registration.mState == STATE_LOADING) {
+            final Batch batch = registration.mBatch;
+            finish(registration);
+            if (batch.mRemaining == 0 && batch.mRequest != null) {
+                batch.mRequest.cancel();
+            }
+            return;
+        } else {
+            return;
+        }
+        registration.mState = STATE_IDLE;
+        registration.mLayout.setRefreshing(false);
+    }
+
+    private void finish(Registration registration) {
+        registration.mBatch.mRemaining--;
+        registration.mBatch = null;
+        registration.mState = STATE_IDLE;
+        registration.mLayout.setRefreshing(false);
+    }
+
+    void onSlice(Batch batch, String key, T slice) {
+        final Registration registration = mRegistrations.get(key);
+        if (registration == null || registration.mBatch != batch) {
+            // Cancelled, unregistered or not part of this batch
+            return;
+        }
+        finish(registration);
+        registration.mListener.onSliceLoaded(key, slice);
+    }
+
+    void onPartialSlice(Batch batch, String key, T partial, long received, long expected) {
+        final Registration registration = mRegistrations.get(key);
+        if (registration == null || registration.mBatch != batch) {
+            return;
+        }
+        registration.mLayout.setRefreshProgress(received, expected);
+        registration.mListener.onPartialSlice(key, partial);
+    }
+
+    void onComplete(Batch batch, Throwable error) {
+        for (Registration registration : batch.mRegistrations) {
+            if (registration.mBatch == batch) {
+                finish(registration);
+                registration.mListener.onSliceFailed(registration.mKey, error);
+            }
+        }
+    }
+
+    /**
+     * Backend the batched requests are sent to.
+     *
+     * @param <T> type of the slice loaded for each key
+     */
+    public interface DataSource<T> {
+        /**
+         * Loads the slices of the given keys in a single request. Each slice is reported with
+         * {@link BatchCallback#onSlice(String, Object)} as it becomes available, optionally
+         * preceded by parts of it with
+         * {@link BatchCallback#onPartialSlice(String, Object, long, long)}, then the end
+         * of the request with {@link BatchCallback#onComplete(Throwable)}. The callback may be
+         * called from any thread.
+         *
+         * @param keys     keys to load, highest priority first
+         * @param callback callback to report the slices to
+         * @return A handle to cancel the request, or null if it cannot be cancelled.
+         */
+        @Nullable
+        Cancellable load(@NonNull List<String> keys, @NonNull BatchCallback<T> callback);
+    }
+
+    /**
+     * Receives the results of a batched request from the {@link DataSource}.
+     *
+     * @param <T> type of the slice loaded for each key
+     */
+    public interface BatchCallback<T> {
+        /**
+         * Reports the slice of one key.
+         */
+        void onSlice(@NonNull String key, T slice);
+
+        /**
+         * Reports part of the slice of one key before it is complete, e.g. a page of a streamed
+         * response, together with how far loading that key is along.
+         *
+         * @param partial  The part received, which the listener can show right away.
+         * @param received Amount received so far, e.g. bytes or items.
+         * @param expected Total amount expected, or 0 or less if it is not known.
+         */
+        void onPartialSlice(@NonNull String key, T partial, long received, long expected);
+
+        /**
+         * Reports the end of the request. Keys whose slice was not reported fail.
+         *
+         * @param error Why the request failed, or null if it succeeded.
+         */
+        void onComplete(@Nullable Throwable error);
+    }
+
+    /**
+     * Cancels a request sent to the {@link DataSource}.
+     */
+    public interface Cancellable {
+        void cancel();
+    }
+
+    /**
+     * Receives the slice of a registered layout.
+     *
+     * @param <T> type of the slice
+     */
+    public interface SliceListener<T> {
+        /**
+         * Called on the main thread when the slice of the given key has been loaded. The
+         * layout's indicator has already been stopped.
+         */
+        void onSliceLoaded(@NonNull String key, T slice);
+
+        /**
+         * Called on the main thread with part of the slice of the given key while it is still
+         * loading, so that content can be shown before the refresh finishes. The layout's
+         * indicator shows the progress reported with it.
+         */
+        void onPartialSlice(@NonNull String key, T partial);
+
+        /**
+         * Called on the main thread when the request that was to load the given key completed
+         * without it. The layout's indicator has already been stopped.
+         *
+         * @param error Why the request failed, or null if the data source did not return the key.
+         */
+        void onSliceFailed(@NonNull String key, @Nullable Throwable error);
+    }
+
+    private final class Registration implements SwipeRefreshLayout.OnRefreshListener {
+        final String mKey;
+        final int mPriority;
+        final SwipeRefreshLayout mLayout;
+        final SliceListener<T> mListener;
+        int mState = STATE_IDLE;
+        // Batch loading this registration's slice, while loading
+        Batch mBatch;
+
+        Registration(String key, int priority, SwipeRefreshLayout layout,
+                     SliceListener<T> listener) {
+            mKey = key;
+            mPriority = priority;
+            mLayout = layout;
+            mListener = listener;
+        }
+
+        @Override
+        public void onRefresh() {
+            enqueue(this);
+        }
+    }
+
+    private final class Batch implements BatchCallback<T> {
+        final List<Registration> mRegistrations;
+        // Number of registrations still waiting for their slice
+        int mRemaining;
+        Cancellable mRequest;
+
+        Batch(int size) {
+            mRegistrations = new ArrayList<>(size);
+            mRemaining = size;
+        }
+
+        @Override
+        public void onSlice(@NonNull final String key, final T slice) {
+            if (Looper.myLooper() == mHandler.getLooper()) {
+                RefreshOrchestrator.this.onSlice(this, key, slice);
+            } else {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        RefreshOrchestrator.this.onSlice(Batch.this, key, slice);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onPartialSlice(@NonNull final String key, final T partial,
+                                   final long received, final long expected) {
+            if (Looper.myLooper() == mHandler.getLooper()) {
+                RefreshOrchestrator.this.onPartialSlice(this, key, partial, received, expected);
+            } else {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        RefreshOrchestrator.this.onPartialSlice(Batch.this, key, partial,
+                                received, expected);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onComplete(@Nullable final Throwable error) {
+            if (Looper.myLooper() == mHandler.getLooper()) {
+                RefreshOrchestrator.this.onComplete(this, error);
+            } else {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        RefreshOrchestrator.this.onComplete(Batch.this, error);
+                    }
+                });
+            }
+        }
+    }
+}
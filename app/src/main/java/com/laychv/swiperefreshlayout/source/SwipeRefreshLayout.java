@@ -16,11 +16,20 @@
 
 package com.laychv.swiperefreshlayout.source;
 
+import android.animation.ValueAnimator;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.LongSparseArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
@@ -45,6 +54,13 @@ import androidx.core.view.NestedScrollingParent;
 import androidx.core.view.NestedScrollingParentHelper;
 import androidx.core.view.ViewCompat;
 import androidx.core.widget.ListViewCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewTreeLifecycleOwner;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The SwipeRefreshLayout should be used whenever the user can refresh the
@@ -75,6 +91,23 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
     public static final int DEFAULT_SLINGSHOT_DISTANCE = -1;
 
+    // Redraw the spinner on every display frame
+    public static final int FRAME_RATE_NATIVE = CircularProgressDrawable.FRAME_RATE_NATIVE;
+
+    // The spinner's shadow is cast by the platform from its elevation
+    public static final int SHADOW_MODE_ELEVATION = CircleImageView.SHADOW_MODE_ELEVATION;
+    // The spinner's shadow is a bitmap rendered once per size
+    public static final int SHADOW_MODE_BITMAP = CircleImageView.SHADOW_MODE_BITMAP;
+    // The spinner has no shadow
+    public static final int SHADOW_MODE_NONE = CircleImageView.SHADOW_MODE_NONE;
+
+    // Low power mode follows the system settings, see setLowPowerMode()
+    public static final int LOW_POWER_AUTO = 0;
+    // Low power mode is always on
+    public static final int LOW_POWER_ON = 1;
+    // Low power mode is always off
+    public static final int LOW_POWER_OFF = 2;
+
     @VisibleForTesting
     static final int CIRCLE_DIAMETER = 40;
     @VisibleForTesting
@@ -87,24 +120,26 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
     private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
     private static final int INVALID_POINTER = -1;
+    // Values of mPendingRefreshing, see setRefreshingAsync()
+    private static final int PENDING_NONE = -1;
+    private static final int PENDING_STOP = 0;
+    private static final int PENDING_START = 1;
     private static final float DRAG_RATE = .5f;
 
-    // Max amount of circle that can be filled by progress during swipe gesture,
-    // where 1.0 is a full circle
-    private static final float MAX_PROGRESS_ANGLE = .8f;
-
     private static final int SCALE_DOWN_DURATION = 150;
 
-    private static final int ALPHA_ANIMATION_DURATION = 300;
-
     private static final int ANIMATE_TO_TRIGGER_DURATION = 200;
 
     private static final int ANIMATE_TO_START_DURATION = 200;
 
-    // Default background for the progress spinner
-    private static final int CIRCLE_BG_LIGHT = 0xFFFAFAFA;
     // Default offset in dips from the top of the view to where the progress spinner should stop
     private static final int DEFAULT_CIRCLE_TARGET = 64;
+    // Page id used while no page has been set, see setCurrentPage()
+    private static final long NO_PAGE = Long.MIN_VALUE;
+    // No idle release by default, see setIdleReleaseTimeout()
+    private static final long DEFAULT_IDLE_RELEASE_TIMEOUT = -1;
+    // Frame rate of the spinner once adaptive quality has lowered it
+    private static final int DEGRADED_FRAME_RATE = 30;
     private static final int[] LAYOUT_ATTRS = new int[]{
             android.R.attr.enabled
     };
@@ -114,13 +149,18 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     private final int[] mParentOffsetInWindow = new int[2];
     private final int mMediumAnimationDuration;
     private final DecelerateInterpolator mDecelerateInterpolator;
+    private final AdaptiveQualityController mQualityController;
+    private final SystemPowerState mPowerState;
+    private boolean mAdaptiveQuality;
     protected int mFrom;
     protected int mOriginalOffsetTop;
     OnRefreshListener mListener;
-    boolean mRefreshing = false;
+    // Drag/refresh state and spinner physics, shared with other UI toolkits
+    final SwipeRefreshState mState = new SwipeRefreshState();
     int mCurrentTargetOffsetTop;
     // Whether this item is scaled up rather than clipped
     boolean mScale;
+    // Created on the first gesture or refresh, see ensureProgressView()
     CircleImageView mCircleView;
     private final Animation mAnimateToStartPosition = new Animation() {
         @Override
@@ -154,26 +194,110 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     private View mTarget; // the target of the gesture
     private int mTouchSlop;
     private float mTotalDragDistance = -1;
-    // If nested scrolling is enabled, the total amount that needed to be
-    // consumed by this as the nested scrolling parent is used in place of the
-    // overscroll determined by MOVE events in the onTouch handler
-    private float mTotalUnconsumed;
     private boolean mNestedScrollInProgress;
     private float mInitialMotionY;
     private float mInitialDownY;
-    private boolean mIsBeingDragged;
     private int mActivePointerId = INVALID_POINTER;
-    // Target is returning to its start offset because it was cancelled or a
-    // refresh was triggered.
-    private boolean mReturningToStart;
     private int mCircleViewIndex = -1;
     private Animation mScaleAnimation;
     private Animation mScaleDownAnimation;
-    private Animation mAlphaStartAnimation;
-    private Animation mAlphaMaxAnimation;
     private Animation mScaleDownToStartAnimation;
     private int mCircleDiameter;
+    // Configuration buffered until the progress view is created
+    private int mProgressSize = CircularProgressDrawable.DEFAULT;
+    // No disc is drawn behind the icon until a background color is set
+    private int mProgressBackgroundColor = Color.TRANSPARENT;
+    private int mProgressShadowMode = SHADOW_MODE_ELEVATION;
+    private int mProgressFrameRate = FRAME_RATE_NATIVE;
+    private boolean mProgressHardwareBitmap;
+    private IndicatorRenderer mIndicatorRenderer;
+    private int mLowPowerMode = LOW_POWER_AUTO;
+    // Whether the indicator currently runs in low power mode, resolved by updateLowPower()
+    private boolean mLowPower;
+    // Whether setRefreshing(true) shows the indicator in the overlay, see
+    // setProgrammaticRefreshInOverlay()
+    private boolean mProgrammaticRefreshInOverlay;
+    private boolean mOverlayRefreshing;
+    private int[] mColorSchemeColors;
     private OnChildScrollUpCallback mChildScrollUpCallback;
+    // Page the single indicator currently belongs to, and the view that scrolls inside it
+    private long mCurrentPageId = NO_PAGE;
+    // Weak, as the page may be recycled before the next setCurrentPage() call
+    private WeakReference<View> mPageScrollTarget;
+    // Pages other than the current one that are refreshing, mapped to the uptime their refresh
+    // started at, so that each page's refresh is timed on its own
+    private final LongSparseArray<Long> mRefreshingPages = new LongSparseArray<>();
+    private long mIdleReleaseTimeout = DEFAULT_IDLE_RELEASE_TIMEOUT;
+    // Refresh watchdog, see setRefreshTimeout()
+    private long mRefreshTimeout;
+    private long mRefreshStartTimeMillis = -1;
+    private long mLastRefreshDurationMillis = -1;
+    private boolean mRefreshTimedOut;
+    private OnRefreshTimeoutListener mRefreshTimeoutListener;
+    private OnRefreshFinishedListener mRefreshFinishedListener;
+    private final Runnable mRefreshTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onRefreshTimeout();
+        }
+    };
+    // Latest state requested by setRefreshingAsync() and not yet applied
+    private final AtomicInteger mPendingRefreshing = new AtomicInteger(PENDING_NONE);
+    private final Runnable mApplyPendingRefreshing = new Runnable() {
+        @Override
+        public void run() {
+            final int pending = mPendingRefreshing.getAndSet(PENDING_NONE);
+            if (pending != PENDING_NONE) {
+                setRefreshing(pending == PENDING_START);
+            }
+        }
+    };
+    private final Runnable mIdleReleaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isIndicatorIdle()) {
+                releaseProgressResources();
+            }
+        }
+    };
+    private final Runnable mApplyQualityLevel = new Runnable() {
+        @Override
+        public void run() {
+            applyQualityLevel();
+        }
+    };
+    private final ComponentCallbacks2 mTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            CircleImageView.trimShadowCache();
+            if (isIndicatorIdle()) {
+                releaseProgressResources();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+    // Lifecycle of the screen hosting this layout, observed while attached
+    private LifecycleOwner mLifecycleOwner;
+    private boolean mHostStarted = true;
+    private final LifecycleEventObserver mLifecycleObserver = new LifecycleEventObserver() {
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source,
+                                   @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_START) {
+                setHostStarted(true);
+            } else if (event == Lifecycle.Event.ON_STOP) {
+                setHostStarted(false);
+            }
+        }
+    };
     private final Animation.AnimationListener mRefreshListener = new Animation.AnimationListener() {
         @Override
         public void onAnimationStart(Animation animation) {
@@ -185,7 +309,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
         @Override
         public void onAnimationEnd(Animation animation) {
-            if (mRefreshing) {
+            if (mState.isRefreshing()) {
                 // Make sure the progress view is fully visible
                 mProgress.setAlpha(MAX_ALPHA);
                 mProgress.start();
@@ -226,11 +350,21 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
         setWillNotDraw(false);
         mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
+        mPowerState = SystemPowerState.get(context);
+        mQualityController = new AdaptiveQualityController(mPowerState,
+                new AdaptiveQualityController.Callback() {
+                    @Override
+                    public void onQualityLevelChanged(int level) {
+                        // Levels change while the spinner draws, and dropping the shadow
+                        // changes the elevation and outline, so it waits for the next frame
+                        removeCallbacks(mApplyQualityLevel);
+                        postOnAnimation(mApplyQualityLevel);
+                    }
+                });
 
         final DisplayMetrics metrics = getResources().getDisplayMetrics();
         mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
 
-        createProgressView();
         setChildrenDrawingOrderEnabled(true);
         // the absolute offset has to take into account that the circle starts at an offset
         mSpinnerOffsetEnd = (int) (DEFAULT_CIRCLE_TARGET * metrics.density);
@@ -249,6 +383,14 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     }
 
     void reset() {
+        if (mCircleView == null) {
+            // Nothing has been shown yet; just keep the start position in sync
+            mCurrentTargetOffsetTop = mOriginalOffsetTop;
+            return;
+        }
+        if (mOverlayRefreshing) {
+            hideOverlayIndicator();
+        }
         mCircleView.clearAnimation();
         mProgress.stop();
         mCircleView.setVisibility(View.GONE);
@@ -260,6 +402,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
             setTargetOffsetTopAndBottom(mOriginalOffsetTop - mCurrentTargetOffsetTop);
         }
         mCurrentTargetOffsetTop = mCircleView.getTop();
+        scheduleIdleRelease();
     }
 
     @Override
@@ -270,15 +413,218 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+        mPowerState.register(this);
+        mLifecycleOwner = ViewTreeLifecycleOwner.get(this);
+        if (mLifecycleOwner != null) {
+            setHostStarted(mLifecycleOwner.getLifecycle().getCurrentState()
+                    .isAtLeast(Lifecycle.State.STARTED));
+            mLifecycleOwner.getLifecycle().addObserver(mLifecycleObserver);
+        }
+        scheduleIdleRelease();
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         reset();
+        removeCallbacks(mIdleReleaseRunnable);
+        removeCallbacks(mApplyQualityLevel);
+        mQualityController.stop();
+        getContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+        mPowerState.unregister(this);
+        if (mLifecycleOwner != null) {
+            mLifecycleOwner.getLifecycle().removeObserver(mLifecycleObserver);
+            mLifecycleOwner = null;
+        }
+        setHostStarted(true);
+        releaseProgressResources();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.mRefreshing = mState.isRefreshing();
+        ss.mNotify = mNotify;
+        ss.mRotationPhase = mProgress != null ? mProgress.getRotationPhase() : 0f;
+        ss.mRefreshElapsedMillis = mRefreshStartTimeMillis >= 0
+                ? SystemClock.uptimeMillis() - mRefreshStartTimeMillis : -1;
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        if (ss.mRefreshing && !mState.isRefreshing()) {
+            restoreRefreshing(ss.mNotify, ss.mRotationPhase, ss.mRefreshElapsedMillis);
+        }
+    }
+
+    /**
+     * Puts the indicator straight back into the refreshing state it was saved in, or that the
+     * page switched to is in, without the entry animation and without calling
+     * {@link OnRefreshListener#onRefresh()} again, since the refresh itself is still in flight.
+     */
+    private void restoreRefreshing(boolean notify, float rotationPhase, long elapsedMillis) {
+        ensureProgressResources();
+        mCircleView.clearAnimation();
+        setRefreshingState(true);
+        mNotify = notify;
+        if (elapsedMillis >= 0) {
+            // Keep timing the refresh from when it really started
+            mRefreshStartTimeMillis = SystemClock.uptimeMillis() - elapsedMillis;
+            setRefreshTimeout(mRefreshTimeout);
+        }
+        if (mProgrammaticRefreshInOverlay && !notify) {
+            showOverlayIndicator(rotationPhase);
+            return;
+        }
+        setTargetOffsetTopAndBottom(getRefreshingOffsetTop() - mCurrentTargetOffsetTop);
+        mCircleView.setVisibility(View.VISIBLE);
+        setAnimationProgress(1f);
+        mProgress.setAlpha(MAX_ALPHA);
+        mProgress.start(rotationPhase);
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        updateOverlayIndicatorVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateOverlayIndicatorVisibility();
+    }
+
+    /**
+     * Pauses the spinner while the screen hosting this layout is stopped, even if the layout is
+     * still attached and shown, and resumes it where it left off once the screen is started.
+     */
+    private void setHostStarted(boolean started) {
+        mHostStarted = started;
+        if (mCircleView != null) {
+            mCircleView.setHostStarted(started);
+        }
+        updateOverlayIndicatorVisibility();
+    }
+
+    /**
+     * The spinner view pauses its drawable itself while hidden; this does the same for the
+     * drawable while it is shown in the overlay instead.
+     */
+    private void updateOverlayIndicatorVisibility() {
+        if (mOverlayRefreshing) {
+            mProgress.setVisible(mHostStarted && isShown()
+                    && getWindowVisibility() == View.VISIBLE, false);
+        }
+    }
+
+    /**
+     * Sets how long the refresh indicator may stay idle before its bitmap and animator are
+     * released. They are rebuilt on the next gesture or refresh, which then pays for decoding
+     * them again. Resources are always released when the system reports memory pressure or the
+     * layout is detached. Off by default.
+     *
+     * @param timeoutMillis Idle time in milliseconds, or a negative value to only release on
+     *                      memory pressure and detach.
+     */
+    public void setIdleReleaseTimeout(long timeoutMillis) {
+        mIdleReleaseTimeout = timeoutMillis;
+        removeCallbacks(mIdleReleaseRunnable);
+        scheduleIdleRelease();
+    }
+
+    /**
+     * @return The number of bytes currently retained by the refresh indicator, which drops to 0
+     * once its resources have been released while idle.
+     */
+    public int getProgressRetainedByteCount() {
+        return mProgress != null ? mProgress.getRetainedByteCount() : 0;
+    }
+
+    /**
+     * @return How many of the bytes retained by the refresh indicator live in graphics memory,
+     * e.g. as a hardware bitmap, rather than on the heap.
+     */
+    public int getProgressGraphicsByteCount() {
+        return mProgress != null ? mProgress.getGraphicsByteCount() : 0;
+    }
+
+    private void scheduleIdleRelease() {
+        if (mIdleReleaseTimeout >= 0 && isIndicatorIdle()) {
+            removeCallbacks(mIdleReleaseRunnable);
+            postDelayed(mIdleReleaseRunnable, mIdleReleaseTimeout);
+        }
+    }
+
+    boolean isIndicatorIdle() {
+        return !mState.isRefreshing() && !mState.isBeingDragged() && !mNestedScrollInProgress
+                && (mCircleView == null || mCircleView.getVisibility() != View.VISIBLE);
+    }
+
+    private void ensureProgressResources() {
+        removeCallbacks(mIdleReleaseRunnable);
+        ensureProgressView();
+        updateLowPower();
+        final int retainedBytes = mProgress.getRetainedByteCount();
+        final int graphicsBytes = mProgress.getGraphicsByteCount();
+        mProgress.ensureResources();
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)
+                && mProgress.getRetainedByteCount() != retainedBytes) {
+            logRetainedBytes("Prepared", retainedBytes, graphicsBytes);
+        }
+    }
+
+    private void releaseProgressResources() {
+        if (mProgress == null) {
+            return;
+        }
+        final int retainedBytes = mProgress.getRetainedByteCount();
+        final int graphicsBytes = mProgress.getGraphicsByteCount();
+        mProgress.releaseResources();
+        mCircleView.releaseShadowBitmap();
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            logRetainedBytes("Released", retainedBytes, graphicsBytes);
+        }
+    }
+
+    private void logRetainedBytes(String action, int retainedBytes, int graphicsBytes) {
+        final int newGraphicsBytes = mProgress.getGraphicsByteCount();
+        Log.d(LOG_TAG, action + " indicator resources: heap "
+                + (retainedBytes - graphicsBytes) + " -> "
+                + (mProgress.getRetainedByteCount() - newGraphicsBytes) + " bytes, graphics "
+                + graphicsBytes + " -> " + newGraphicsBytes + " bytes");
+    }
+
+    /**
+     * Decodes the default bitmap icon no larger than the indicator, so that switching between
+     * {@link CircularProgressDrawable#DEFAULT} and {@link CircularProgressDrawable#LARGE} also
+     * changes the size of the decoded bitmap, and into a hardware bitmap if requested.
+     */
+    private void applyBitmapRendererOptions() {
+        if (mProgress != null && mProgress.getRenderer() instanceof BitmapIndicatorRenderer) {
+            final BitmapIndicatorRenderer renderer =
+                    (BitmapIndicatorRenderer) mProgress.getRenderer();
+            renderer.setHardwareBitmap(mProgressHardwareBitmap);
+            renderer.setMaxSize(mCircleDiameter);
+        }
     }
 
     private void setColorViewAlpha(int targetAlpha) {
 //        mCircleView.getBackground().setAlpha(targetAlpha);
-        mProgress.setAlpha(targetAlpha);
+        if (mProgress != null) {
+            mProgress.setAlpha(targetAlpha);
+        }
     }
 
     /**
@@ -306,7 +652,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         mSpinnerOffsetEnd = end;
         mUsingCustomStart = true;
         reset();
-        mRefreshing = false;
+        setRefreshingState(false);
     }
 
     /**
@@ -341,7 +687,9 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     public void setProgressViewEndTarget(boolean scale, int end) {
         mSpinnerOffsetEnd = end;
         mScale = scale;
-        mCircleView.invalidate();
+        if (mCircleView != null) {
+            mCircleView.invalidate();
+        }
     }
 
     /**
@@ -368,6 +716,19 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         } else {
             mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
         }
+        mProgressSize = size;
+        applyBitmapRendererOptions();
+        if (mCircleView == null) {
+            return;
+        }
+        if (mOverlayRefreshing) {
+            // The drawable is drawn in the overlay: resize it there, without a layout pass. The
+            // spinner view picks up the new bounds when hideOverlayIndicator() hands it back.
+            mProgress.setStyle(size);
+            measureCircleView();
+            updateOverlayIndicatorBounds();
+            return;
+        }
         // force the bounds of the progress circle inside the circle view to
         // update by setting it to null before updating its size and then
         // re-setting it
@@ -376,6 +737,160 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         mCircleView.setImageDrawable(mProgress);
     }
 
+    /**
+     * Decodes the {@link BitmapIndicatorRenderer} icon into a hardware bitmap from API 28, so
+     * that its pixels only live in graphics memory. Only enable it if this layout is never drawn
+     * into a software canvas, e.g. into a bitmap for a screenshot or on a software layer, which
+     * cannot draw hardware bitmaps. Off by default.
+     *
+     * @param hardwareBitmap Whether to decode the icon into a hardware bitmap.
+     */
+    public void setProgressHardwareBitmap(boolean hardwareBitmap) {
+        mProgressHardwareBitmap = hardwareBitmap;
+        applyBitmapRendererOptions();
+    }
+
+    /**
+     * One of SHADOW_MODE_ELEVATION, SHADOW_MODE_BITMAP or SHADOW_MODE_NONE. The bitmap mode
+     * avoids the platform shadow pass on devices where it is expensive, e.g. large screens.
+     * Only a disc casts a shadow, so nothing is drawn until a background color is set with
+     * {@link #setProgressBackgroundColorSchemeColor(int)}.
+     */
+    public void setProgressShadowMode(int shadowMode) {
+        if (shadowMode != SHADOW_MODE_ELEVATION && shadowMode != SHADOW_MODE_BITMAP
+                && shadowMode != SHADOW_MODE_NONE) {
+            return;
+        }
+        mProgressShadowMode = shadowMode;
+        if (mCircleView != null) {
+            mCircleView.setShadowMode(mProgressShadowMode);
+        }
+    }
+
+    /**
+     * One of LOW_POWER_AUTO, LOW_POWER_ON or LOW_POWER_OFF. In low power mode the scale and
+     * alpha animations are skipped, the spinner jumps straight to its settled positions and,
+     * while refreshing, only steps a few times per second instead of animating on every frame.
+     * LOW_POWER_AUTO, the default, turns it on while animations are disabled in the system
+     * settings, battery saver is on or the device reports an elevated thermal status. The
+     * system state is tracked while the layout is attached and applied each time a gesture or
+     * refresh starts.
+     *
+     * @param mode How low power mode is chosen.
+     */
+    public void setLowPowerMode(int mode) {
+        mLowPowerMode = mode;
+        updateLowPower();
+    }
+
+    /**
+     * @return Whether the indicator currently runs in low power mode.
+     */
+    public boolean isLowPower() {
+        return mLowPower;
+    }
+
+    private void updateLowPower() {
+        mLowPower = mLowPowerMode == LOW_POWER_ON
+                || (mLowPowerMode == LOW_POWER_AUTO && (mPowerState.isLowPower()
+                        || (Build.VERSION.SDK_INT >= 26 && !ValueAnimator.areAnimatorsEnabled())));
+        if (mProgress != null) {
+            mProgress.setLowPower(mLowPower);
+        }
+    }
+
+    /**
+     * Returns the duration to run an animation of the spinner for. In low power mode it is 0,
+     * so the animation only applies its final frame and notifies its listener.
+     */
+    private long getAnimationDuration(long duration) {
+        return mLowPower ? 0 : duration;
+    }
+
+    /**
+     * Caps how many times per second the spinner redraws while refreshing, e.g. 30 or 60 on a
+     * 120 Hz display. The spinner keeps turning at the same speed. Use FRAME_RATE_NATIVE to
+     * redraw on every display frame.
+     *
+     * @param framesPerSecond Target frame rate of the spinner.
+     */
+    public void setProgressFrameRate(int framesPerSecond) {
+        mProgressFrameRate = framesPerSecond;
+        if (mProgress != null) {
+            mProgress.setTargetFrameRate(getEffectiveFrameRate());
+        }
+    }
+
+    /**
+     * Lets the indicator lower its rendering quality while refreshing when the screen misses
+     * frames or the device is getting hot, and raise it again once there is headroom, so that
+     * on weak devices the indicator gives way instead of the rest of the screen. Step by step
+     * it gives up filtering the {@link BitmapIndicatorRenderer} icon, redraws the spinner at
+     * 30 fps and finally drops the shadow. The first step does not apply to other renderers.
+     * Only the frames the spinner draws while it turns are measured, and each refresh starts at
+     * full quality. Off by default.
+     *
+     * @param enabled Whether the indicator adapts its rendering quality.
+     */
+    public void setAdaptiveQualityEnabled(boolean enabled) {
+        mAdaptiveQuality = enabled;
+        if (mProgress != null) {
+            mProgress.setOnFrameDrawnListener(enabled ? mQualityController : null);
+        }
+        if (!enabled) {
+            mQualityController.stop();
+            mQualityController.reset();
+        } else if (mState.isRefreshing()) {
+            startQualityController();
+        }
+    }
+
+    private void startQualityController() {
+        mQualityController.start(getDisplay() != null ? getDisplay().getRefreshRate() : 0f);
+    }
+
+    private int getEffectiveFrameRate() {
+        if (mQualityController.getLevel() < AdaptiveQualityController.LEVEL_LOW_FRAME_RATE) {
+            return mProgressFrameRate;
+        }
+        return mProgressFrameRate > 0
+                ? Math.min(mProgressFrameRate, DEGRADED_FRAME_RATE) : DEGRADED_FRAME_RATE;
+    }
+
+    void applyQualityLevel() {
+        if (mProgress == null) {
+            return;
+        }
+        final int level = mQualityController.getLevel();
+        final IndicatorRenderer renderer = mProgress.getRenderer();
+        if (renderer instanceof BitmapIndicatorRenderer) {
+            ((BitmapIndicatorRenderer) renderer).setFilterBitmap(
+                    level < AdaptiveQualityController.LEVEL_NEAREST);
+        }
+        mProgress.setTargetFrameRate(getEffectiveFrameRate());
+        // Only what is drawn changes, so dropping the shadow does not relayout mid-refresh
+        mCircleView.setShadowSuppressed(level >= AdaptiveQualityController.LEVEL_NO_SHADOW);
+    }
+
+    /**
+     * Replaces what the refresh indicator draws, e.g. with a {@link VectorIndicatorRenderer},
+     * {@link ArcIndicatorRenderer} or {@link FrameSequenceIndicatorRenderer}. By default the
+     * bitmap icon is drawn by a {@link BitmapIndicatorRenderer}. Use
+     * {@link IndicatorRenderer#allocatesWhileDrawing()} and
+     * {@link IndicatorRenderer#canRunOnRenderThread()} to pick the cheapest renderer for a
+     * device.
+     *
+     * @param renderer The renderer to draw the indicator with.
+     */
+    public void setIndicatorRenderer(@NonNull IndicatorRenderer renderer) {
+        mIndicatorRenderer = renderer;
+        if (mProgress != null) {
+            mProgress.setRenderer(renderer);
+            applyBitmapRendererOptions();
+            applyQualityLevel();
+        }
+    }
+
     @Override
     protected int getChildDrawingOrder(int childCount, int i) {
         if (mCircleViewIndex < 0) {
@@ -392,13 +907,43 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         }
     }
 
-    private void createProgressView() {
-        mCircleView = new CircleImageView(getContext(), CIRCLE_BG_LIGHT);
+    /**
+     * Creates the progress view and drawable on first use, so that layouts which are never
+     * pulled or refreshed do not pay for them. Configuration set before this point is applied
+     * here.
+     */
+    private void ensureProgressView() {
+        if (mCircleView != null) {
+            return;
+        }
+        mCircleView = new CircleImageView(getContext(), mProgressBackgroundColor);
+        mCircleView.setShadowMode(mProgressShadowMode);
+        mCircleView.setHostStarted(mHostStarted);
         mProgress = new CircularProgressDrawable(getContext());
-        mProgress.setStyle(CircularProgressDrawable.DEFAULT);
+        mProgress.setStyle(mProgressSize);
+        mProgress.setLowPower(mLowPower);
+        if (mAdaptiveQuality) {
+            mProgress.setOnFrameDrawnListener(mQualityController);
+        }
+        if (mIndicatorRenderer != null) {
+            mProgress.setRenderer(mIndicatorRenderer);
+        }
+        applyBitmapRendererOptions();
+        applyQualityLevel();
+        if (mColorSchemeColors != null) {
+            mProgress.setColorSchemeColors(mColorSchemeColors);
+        }
         mCircleView.setImageDrawable(mProgress);
         mCircleView.setVisibility(View.GONE);
         addView(mCircleView);
+        // Offsets are applied before the layout requested by addView() runs, so the view
+        // has to start out at the current offset
+        if (ViewCompat.isLaidOut(this)) {
+            measureCircleView();
+            layoutCircleView();
+        } else {
+            ViewCompat.offsetTopAndBottom(mCircleView, mCurrentTargetOffsetTop);
+        }
     }
 
     /**
@@ -410,6 +955,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     }
 
     private void startScaleUpAnimation(AnimationListener listener) {
+        ensureProgressView();
         mCircleView.setVisibility(View.VISIBLE);
         mProgress.setAlpha(MAX_ALPHA);
         mScaleAnimation = new Animation() {
@@ -418,12 +964,12 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                 setAnimationProgress(interpolatedTime);
             }
         };
-        mScaleAnimation.setDuration(mMediumAnimationDuration);
+        mScaleAnimation.setDuration(getAnimationDuration(mMediumAnimationDuration));
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
         mCircleView.clearAnimation();
-        mCircleView.startAnimation(mScaleAnimation);
+        mCircleView.startAnimation(mScaleAnimation, !mLowPower /* useHardwareLayer */);
     }
 
     /**
@@ -437,11 +983,11 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     }
 
     private void setRefreshing(boolean refreshing, final boolean notify) {
-        if (mRefreshing != refreshing) {
+        if (mState.isRefreshing() != refreshing) {
             mNotify = notify;
             ensureTarget();
-            mRefreshing = refreshing;
-            if (mRefreshing) {
+            setRefreshingState(refreshing);
+            if (mState.isRefreshing()) {
                 animateOffsetToCorrectPosition(mCurrentTargetOffsetTop, mRefreshListener);
             } else {
                 startScaleDownAnimation(mRefreshListener);
@@ -456,34 +1002,10 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                 setAnimationProgress(1 - interpolatedTime);
             }
         };
-        mScaleDownAnimation.setDuration(SCALE_DOWN_DURATION);
+        mScaleDownAnimation.setDuration(getAnimationDuration(SCALE_DOWN_DURATION));
         mCircleView.setAnimationListener(listener);
         mCircleView.clearAnimation();
-        mCircleView.startAnimation(mScaleDownAnimation);
-    }
-
-    private void startProgressAlphaStartAnimation() {
-        mAlphaStartAnimation = startAlphaAnimation(mProgress.getAlpha(), STARTING_PROGRESS_ALPHA);
-    }
-
-    private void startProgressAlphaMaxAnimation() {
-        mAlphaMaxAnimation = startAlphaAnimation(mProgress.getAlpha(), MAX_ALPHA);
-    }
-
-    private Animation startAlphaAnimation(final int startingAlpha, final int endingAlpha) {
-        Animation alpha = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                mProgress.setAlpha(
-                        (int) (startingAlpha + ((endingAlpha - startingAlpha) * interpolatedTime)));
-            }
-        };
-        alpha.setDuration(ALPHA_ANIMATION_DURATION);
-        // Clear out the previous animation listeners.
-        mCircleView.setAnimationListener(null);
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(alpha);
-        return alpha;
+        mCircleView.startAnimation(mScaleDownAnimation, !mLowPower /* useHardwareLayer */);
     }
 
     /**
@@ -509,7 +1031,10 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
      * @param color
      */
     public void setProgressBackgroundColorSchemeColor(@ColorInt int color) {
-        mCircleView.setBackgroundColor(color);
+        mProgressBackgroundColor = color;
+        if (mCircleView != null) {
+            mCircleView.setBackgroundColor(color);
+        }
     }
 
     /**
@@ -545,7 +1070,35 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
      */
     public void setColorSchemeColors(@ColorInt int... colors) {
         ensureTarget();
-        mProgress.setColorSchemeColors(colors);
+        // Copied so that later changes to the caller's array do not leak into the indicator
+        mColorSchemeColors = colors.clone();
+        if (mProgress != null) {
+            mProgress.setColorSchemeColors(colors);
+        }
+    }
+
+    /**
+     * Reports how far the current refresh is along, e.g. the bytes or items received so far.
+     * The indicator stops spinning and shows the progress instead, until the refresh finishes.
+     *
+     * @param received Amount received so far.
+     * @param expected Total amount expected, or 0 or less if it is not known, in which case the
+     *                 indicator spins again.
+     */
+    public void setRefreshProgress(long received, long expected) {
+        setRefreshProgress(expected > 0
+                ? (float) received / expected : CircularProgressDrawable.PROGRESS_INDETERMINATE);
+    }
+
+    /**
+     * Reports how far the current refresh is along, see {@link #setRefreshProgress(long, long)}.
+     *
+     * @param progress Progress from [0..1], or a negative value if it is not known.
+     */
+    public void setRefreshProgress(float progress) {
+        if (mProgress != null && mState.isRefreshing()) {
+            mProgress.setProgress(progress);
+        }
     }
 
     /**
@@ -553,7 +1106,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
      * progress.
      */
     public boolean isRefreshing() {
-        return mRefreshing;
+        return mState.isRefreshing();
     }
 
     /**
@@ -563,23 +1116,195 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
      * @param refreshing Whether or not the view should show refresh progress.
      */
     public void setRefreshing(boolean refreshing) {
-        if (refreshing && mRefreshing != refreshing) {
+        if (refreshing && mState.isRefreshing() != refreshing) {
             // scale and show
-            mRefreshing = refreshing;
-            int endTarget = 0;
-            if (!mUsingCustomStart) {
-                endTarget = mSpinnerOffsetEnd + mOriginalOffsetTop;
-            } else {
-                endTarget = mSpinnerOffsetEnd;
+            ensureProgressResources();
+            setRefreshingState(refreshing);
+            mNotify = false;
+            if (mProgrammaticRefreshInOverlay) {
+                showOverlayIndicator(0f);
+                return;
             }
+            int endTarget = getRefreshingOffsetTop();
             setTargetOffsetTopAndBottom(endTarget - mCurrentTargetOffsetTop);
-            mNotify = false;
             startScaleUpAnimation(mRefreshListener);
+        } else if (!refreshing && mOverlayRefreshing) {
+            setRefreshingState(false);
+            hideOverlayIndicator();
+            scheduleIdleRelease();
         } else {
             setRefreshing(refreshing, false /* notify */);
         }
     }
 
+    /**
+     * Same as {@link #setRefreshing(boolean)}, but may be called from any thread. Only the
+     * latest state requested before the next animation frame is applied, on the UI thread, so
+     * a loader answering from its cache can flip the state several times without the indicator
+     * starting and cancelling its animations within a frame. Flips that cancel out leave the
+     * indicator as it was. Do not mix with {@link #setRefreshing(boolean)}: a state still
+     * pending here is applied after it.
+     *
+     * @param refreshing Whether or not the view should show refresh progress.
+     */
+    public void setRefreshingAsync(boolean refreshing) {
+        final int previous =
+                mPendingRefreshing.getAndSet(refreshing ? PENDING_START : PENDING_STOP);
+        if (previous == PENDING_NONE) {
+            // The first request of a frame posts the update; later ones only replace its state
+            ViewCompat.postOnAnimation(this, mApplyPendingRefreshing);
+        }
+    }
+
+    /**
+     * Stops a refresh that is still running after the given time, in case the app never calls
+     * {@link #setRefreshing(boolean) setRefreshing(false)}, e.g. because a request hangs. On
+     * timeout the {@link OnRefreshTimeoutListener} is notified, then the spinner is stopped and
+     * scaled down as if the refresh had finished.
+     *
+     * @param timeoutMillis Maximum duration of a refresh in milliseconds, or 0 for no limit.
+     */
+    public void setRefreshTimeout(long timeoutMillis) {
+        mRefreshTimeout = timeoutMillis;
+        removeCallbacks(mRefreshTimeoutRunnable);
+        if (mRefreshTimeout > 0 && mRefreshStartTimeMillis >= 0) {
+            final long elapsed = SystemClock.uptimeMillis() - mRefreshStartTimeMillis;
+            postDelayed(mRefreshTimeoutRunnable, Math.max(0, mRefreshTimeout - elapsed));
+        }
+    }
+
+    /**
+     * Set the listener to be notified when a refresh times out, see
+     * {@link #setRefreshTimeout(long)}.
+     */
+    public void setOnRefreshTimeoutListener(@Nullable OnRefreshTimeoutListener listener) {
+        mRefreshTimeoutListener = listener;
+    }
+
+    /**
+     * Set the listener to be notified with the duration of each refresh when it finishes.
+     */
+    public void setOnRefreshFinishedListener(@Nullable OnRefreshFinishedListener listener) {
+        mRefreshFinishedListener = listener;
+    }
+
+    /**
+     * @return How long the last finished refresh ran in milliseconds, or -1 if none has
+     * finished yet.
+     */
+    public long getLastRefreshDurationMillis() {
+        return mLastRefreshDurationMillis;
+    }
+
+    /**
+     * Updates the refreshing state and times the refresh, arming the watchdog while it runs.
+     */
+    private void setRefreshingState(boolean refreshing) {
+        final boolean wasRefreshing = mState.isRefreshing();
+        mState.setRefreshing(refreshing);
+        if (refreshing == wasRefreshing) {
+            return;
+        }
+        if (refreshing) {
+            mRefreshStartTimeMillis = SystemClock.uptimeMillis();
+            mRefreshTimedOut = false;
+            if (mAdaptiveQuality) {
+                startQualityController();
+            }
+            if (mRefreshTimeout > 0) {
+                removeCallbacks(mRefreshTimeoutRunnable);
+                postDelayed(mRefreshTimeoutRunnable, mRefreshTimeout);
+            }
+        } else {
+            removeCallbacks(mRefreshTimeoutRunnable);
+            mQualityController.stop();
+            if (mRefreshStartTimeMillis >= 0) {
+                final long durationMillis = SystemClock.uptimeMillis() - mRefreshStartTimeMillis;
+                mRefreshStartTimeMillis = -1;
+                notifyRefreshFinished(durationMillis, mRefreshTimedOut);
+            }
+        }
+    }
+
+    private void notifyRefreshFinished(long durationMillis, boolean timedOut) {
+        mLastRefreshDurationMillis = durationMillis;
+        if (mRefreshFinishedListener != null) {
+            mRefreshFinishedListener.onRefreshFinished(durationMillis, timedOut);
+        }
+    }
+
+    void onRefreshTimeout() {
+        if (!mState.isRefreshing()) {
+            return;
+        }
+        mRefreshTimedOut = true;
+        if (mRefreshTimeoutListener != null) {
+            mRefreshTimeoutListener.onRefreshTimeout();
+        }
+        // The listener may already have finished the refresh itself
+        if (mState.isRefreshing()) {
+            if (mProgress != null) {
+                mProgress.stop();
+            }
+            setRefreshing(false);
+        }
+    }
+
+    /**
+     * When enabled, {@link #setRefreshing(boolean) setRefreshing(true)} draws the spinner in
+     * this layout's {@link android.view.ViewOverlay} at its resting position instead of
+     * animating the spinner view into place. Nothing is laid out, the child is not touched and
+     * only the overlay is redrawn per frame, so a long list keeps scrolling smoothly while a
+     * background refresh is shown. Refreshes started by the swipe gesture are not affected.
+     *
+     * @param enabled Whether programmatic refreshes should be shown in the overlay.
+     */
+    public void setProgrammaticRefreshInOverlay(boolean enabled) {
+        mProgrammaticRefreshInOverlay = enabled;
+        if (enabled) {
+            // Added now rather than on the first refresh, where adding it would lay out the
+            // whole layout, child included
+            ensureProgressView();
+        }
+    }
+
+    private int getRefreshingOffsetTop() {
+        if (!mUsingCustomStart) {
+            return mSpinnerOffsetEnd + mOriginalOffsetTop;
+        } else {
+            return mSpinnerOffsetEnd;
+        }
+    }
+
+    private void showOverlayIndicator(float rotationPhase) {
+        // Detach the drawable from the spinner view so it only invalidates the overlay
+        mCircleView.setImageDrawable(null);
+        updateOverlayIndicatorBounds();
+        getOverlay().add(mProgress);
+        mOverlayRefreshing = true;
+        updateOverlayIndicatorVisibility();
+        mProgress.setAlpha(MAX_ALPHA);
+        mProgress.start(rotationPhase);
+    }
+
+    private void updateOverlayIndicatorBounds() {
+        int width = mCircleView.getMeasuredWidth();
+        int height = mCircleView.getMeasuredHeight();
+        if (width == 0 || height == 0) {
+            width = height = mCircleDiameter;
+        }
+        final int left = getMeasuredWidth() / 2 - width / 2;
+        final int top = getRefreshingOffsetTop();
+        mProgress.setBounds(left, top, left + width, top + height);
+    }
+
+    private void hideOverlayIndicator() {
+        mOverlayRefreshing = false;
+        mProgress.stop();
+        getOverlay().remove(mProgress);
+        mCircleView.setImageDrawable(mProgress);
+    }
+
     private void ensureTarget() {
         // Don't bother getting the parent height if the parent hasn't been laid
         // out yet.
@@ -622,12 +1347,31 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         final int childWidth = width - getPaddingLeft() - getPaddingRight();
         final int childHeight = height - getPaddingTop() - getPaddingBottom();
         child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+        layoutCircleView();
+        if (mOverlayRefreshing) {
+            updateOverlayIndicatorBounds();
+        }
+    }
+
+    private void layoutCircleView() {
+        if (mCircleView == null) {
+            return;
+        }
+        final int width = getMeasuredWidth();
         int circleWidth = mCircleView.getMeasuredWidth();
         int circleHeight = mCircleView.getMeasuredHeight();
         mCircleView.layout((width / 2 - circleWidth / 2), mCurrentTargetOffsetTop,
                 (width / 2 + circleWidth / 2), mCurrentTargetOffsetTop + circleHeight);
     }
 
+    private void measureCircleView() {
+        if (mCircleView == null) {
+            return;
+        }
+        mCircleView.measure(MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY));
+    }
+
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
@@ -641,8 +1385,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                 getMeasuredWidth() - getPaddingLeft() - getPaddingRight(),
                 MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(
                 getMeasuredHeight() - getPaddingTop() - getPaddingBottom(), MeasureSpec.EXACTLY));
-        mCircleView.measure(MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY));
+        measureCircleView();
         mCircleViewIndex = -1;
         // Get the index of the circleview.
         for (int index = 0; index < getChildCount(); index++) {
@@ -668,13 +1411,110 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
      * scroll up. Override this if the child view is a custom view.
      */
     public boolean canChildScrollUp() {
+        final View pageTarget = mPageScrollTarget != null ? mPageScrollTarget.get() : null;
+        final View target = pageTarget != null ? pageTarget : mTarget;
         if (mChildScrollUpCallback != null) {
-            return mChildScrollUpCallback.canChildScrollUp(this, mTarget);
+            return mChildScrollUpCallback.canChildScrollUp(this, target);
+        }
+        if (target instanceof ListView) {
+            return ListViewCompat.canScrollList((ListView) target, -1);
+        }
+        return target.canScrollVertically(-1);
+    }
+
+    /**
+     * Lets a single SwipeRefreshLayout serve every page of a pager, instead of wrapping each page
+     * in its own layout with its own spinner. Call this whenever the visible page changes: the
+     * swipe gesture then checks the given scroll target, and the indicator switches to the
+     * refresh state of the new page. A refresh triggered by the gesture belongs to the page that
+     * is current at that time, see {@link #getCurrentPageId()}. Each page's refresh keeps its
+     * own start time and timeout while the user switches between pages.
+     *
+     * @param pageId       Stable id of the visible page, e.g. the adapter's item id.
+     * @param scrollTarget The view that scrolls inside that page, or null to use the direct
+     *                     child of this layout.
+     */
+    public void setCurrentPage(long pageId, @Nullable View scrollTarget) {
+        mPageScrollTarget = scrollTarget != null ? new WeakReference<>(scrollTarget) : null;
+        if (pageId == mCurrentPageId) {
+            return;
+        }
+        if (mCurrentPageId != NO_PAGE && mState.isRefreshing()) {
+            mRefreshingPages.put(mCurrentPageId, mRefreshStartTimeMillis);
+        }
+        mCurrentPageId = pageId;
+        final Long startTimeMillis = mRefreshingPages.get(pageId);
+        mRefreshingPages.remove(pageId);
+        // The page is already in its state, so show it as it is instead of animating into it
+        if (startTimeMillis == null) {
+            if (mState.isRefreshing()) {
+                // The previous page's refresh goes on in the background and has not finished
+                mRefreshStartTimeMillis = -1;
+                setRefreshingState(false);
+                reset();
+            }
+        } else if (mState.isRefreshing()) {
+            // Swap in the new page's clock and re-arm the watchdog for what is left of it
+            mRefreshStartTimeMillis = startTimeMillis;
+            mRefreshTimedOut = false;
+            setRefreshTimeout(mRefreshTimeout);
+        } else {
+            restoreRefreshing(false /* notify */, 0f,
+                    SystemClock.uptimeMillis() - startTimeMillis);
+        }
+    }
+
+    /**
+     * @return The id of the current page set with {@link #setCurrentPage(long, View)}.
+     */
+    public long getCurrentPageId() {
+        return mCurrentPageId;
+    }
+
+    /**
+     * Notify the widget that the refresh state of a page has changed. If the page is the current
+     * one this behaves like {@link #setRefreshing(boolean)}, otherwise the state is only recorded
+     * and shown once the page becomes current. The refresh of a page that is not current is
+     * still timed, and its timeout applies as soon as the page becomes current.
+     *
+     * @param pageId     Id of the page, as passed to {@link #setCurrentPage(long, View)}.
+     * @param refreshing Whether or not the page is refreshing.
+     */
+    public void setRefreshing(long pageId, boolean refreshing) {
+        if (pageId == mCurrentPageId) {
+            setRefreshing(refreshing);
+        } else {
+            setPageRefreshing(pageId, refreshing);
+        }
+    }
+
+    /**
+     * @return Whether the given page is refreshing.
+     */
+    public boolean isRefreshing(long pageId) {
+        if (pageId == mCurrentPageId) {
+            return mState.isRefreshing();
         }
-        if (mTarget instanceof ListView) {
-            return ListViewCompat.canScrollList((ListView) mTarget, -1);
+        return mRefreshingPages.get(pageId) != null;
+    }
+
+    /**
+     * Forgets the refresh state of a page that no longer exists.
+     */
+    public void removePage(long pageId) {
+        mRefreshingPages.remove(pageId);
+    }
+
+    private void setPageRefreshing(long pageId, boolean refreshing) {
+        final Long startTimeMillis = mRefreshingPages.get(pageId);
+        if (refreshing) {
+            if (startTimeMillis == null) {
+                mRefreshingPages.put(pageId, SystemClock.uptimeMillis());
+            }
+        } else if (startTimeMillis != null) {
+            mRefreshingPages.remove(pageId);
+            notifyRefreshFinished(SystemClock.uptimeMillis() - startTimeMillis, false);
         }
-        return mTarget.canScrollVertically(-1);
     }
 
     /**
@@ -696,21 +1536,18 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         final int action = ev.getActionMasked();
         int pointerIndex;
 
-        if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
-            mReturningToStart = false;
-        }
-
-        if (!isEnabled() || mReturningToStart || canChildScrollUp()
-                || mRefreshing || mNestedScrollInProgress) {
+        if (!isEnabled() || !mState.canStartSwipe() || canChildScrollUp()
+                || mNestedScrollInProgress) {
             // Fail fast if we're not in a state where a swipe is possible
             return false;
         }
 
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                ensureProgressResources();
                 setTargetOffsetTopAndBottom(mOriginalOffsetTop - mCircleView.getTop());
                 mActivePointerId = ev.getPointerId(0);
-                mIsBeingDragged = false;
+                mState.setBeingDragged(false);
 
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
@@ -739,12 +1576,12 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                mIsBeingDragged = false;
+                mState.setBeingDragged(false);
                 mActivePointerId = INVALID_POINTER;
                 break;
         }
 
-        return mIsBeingDragged;
+        return mState.isBeingDragged();
     }
 
     @Override
@@ -762,7 +1599,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
     @Override
     public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
-        return isEnabled() && !mReturningToStart && !mRefreshing
+        return isEnabled() && mState.canStartSwipe()
                 && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
     }
 
@@ -772,7 +1609,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
         // Dispatch up to the nested parent
         startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
-        mTotalUnconsumed = 0;
+        mState.resetUnconsumed();
         mNestedScrollInProgress = true;
     }
 
@@ -780,22 +1617,16 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
         // If we are in the middle of consuming, a scroll, then we want to move the spinner back up
         // before allowing the list to scroll
-        if (dy > 0 && mTotalUnconsumed > 0) {
-            if (dy > mTotalUnconsumed) {
-                consumed[1] = dy - (int) mTotalUnconsumed;
-                mTotalUnconsumed = 0;
-            } else {
-                mTotalUnconsumed -= dy;
-                consumed[1] = dy;
-            }
-            moveSpinner(mTotalUnconsumed);
+        if (dy > 0 && mState.getTotalUnconsumed() > 0) {
+            consumed[1] = mState.consumePreScroll(dy);
+            moveSpinner(mState.getTotalUnconsumed());
         }
 
         // If a client layout is using a custom start position for the circle
         // view, they mean to hide it again before scrolling the child view
         // If we get back to mTotalUnconsumed == 0 and there is more to go, hide
         // the circle so it isn't exposed if its blocking content is moved
-        if (mUsingCustomStart && dy > 0 && mTotalUnconsumed == 0
+        if (mUsingCustomStart && dy > 0 && mState.getTotalUnconsumed() == 0
                 && Math.abs(dy - consumed[1]) > 0) {
             mCircleView.setVisibility(View.GONE);
         }
@@ -821,9 +1652,11 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         mNestedScrollInProgress = false;
         // Finish the spinner for nested scrolling if we ever consumed any
         // unconsumed nested scroll
-        if (mTotalUnconsumed > 0) {
-            finishSpinner(mTotalUnconsumed);
-            mTotalUnconsumed = 0;
+        if (mState.getTotalUnconsumed() > 0) {
+            finishSpinner(mState.getTotalUnconsumed());
+            mState.resetUnconsumed();
+        } else {
+            scheduleIdleRelease();
         }
         // Dispatch up our nested parent
         stopNestedScroll();
@@ -843,8 +1676,12 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         // This is a decent indication of whether we should take over the event stream or not.
         final int dy = dyUnconsumed + mParentOffsetInWindow[1];
         if (dy < 0 && !canChildScrollUp()) {
-            mTotalUnconsumed += Math.abs(dy);
-            moveSpinner(mTotalUnconsumed);
+            if (mState.getTotalUnconsumed() == 0) {
+                // Only now does the scroll start pulling the spinner, see startDragging()
+                ensureProgressResources();
+            }
+            mState.addUnconsumed(Math.abs(dy));
+            moveSpinner(mState.getTotalUnconsumed());
         }
     }
 
@@ -908,29 +1745,17 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
     }
 
-    private boolean isAnimationRunning(Animation animation) {
-        return animation != null && animation.hasStarted() && !animation.hasEnded();
-    }
-
     private void moveSpinner(float overscrollTop) {
         mProgress.setArrowEnabled(true);
-        float originalDragPercent = overscrollTop / mTotalDragDistance;
-
-        float dragPercent = Math.min(1f, Math.abs(originalDragPercent));
-        float adjustedPercent = (float) Math.max(dragPercent - .4, 0) * 5 / 3;
-        float extraOS = Math.abs(overscrollTop) - mTotalDragDistance;
         float slingshotDist = mCustomSlingshotDistance > 0
                 ? mCustomSlingshotDistance
                 : (mUsingCustomStart
                 ? mSpinnerOffsetEnd - mOriginalOffsetTop
                 : mSpinnerOffsetEnd);
-        float tensionSlingshotPercent = Math.max(0, Math.min(extraOS, slingshotDist * 2)
-                / slingshotDist);
-        float tensionPercent = (float) ((tensionSlingshotPercent / 4) - Math.pow(
-                (tensionSlingshotPercent / 4), 2)) * 2f;
-        float extraMove = (slingshotDist) * tensionPercent * 2;
+        mState.setGeometry(mTotalDragDistance, mOriginalOffsetTop, slingshotDist);
+        mState.updateSpinner(overscrollTop);
 
-        int targetY = mOriginalOffsetTop + (int) ((slingshotDist * dragPercent) + extraMove);
+        int targetY = mState.getSpinnerOffsetTop();
         // where 1.0f is a full circle
         if (mCircleView.getVisibility() != View.VISIBLE) {
             mCircleView.setVisibility(View.VISIBLE);
@@ -941,35 +1766,24 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         }
 
         if (mScale) {
-            setAnimationProgress(Math.min(1f, overscrollTop / mTotalDragDistance));
-        }
-        if (overscrollTop < mTotalDragDistance) {
-            if (mProgress.getAlpha() > STARTING_PROGRESS_ALPHA
-                    && !isAnimationRunning(mAlphaStartAnimation)) {
-                // Animate the alpha
-                startProgressAlphaStartAnimation();
-            }
-        } else {
-            if (mProgress.getAlpha() < MAX_ALPHA && !isAnimationRunning(mAlphaMaxAnimation)) {
-                // Animate the alpha
-                startProgressAlphaMaxAnimation();
-            }
+            setAnimationProgress(mState.getScaleProgress());
         }
-        float strokeStart = adjustedPercent * .8f;
-        mProgress.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, strokeStart));
-        mProgress.setArrowScale(Math.min(1f, adjustedPercent));
-
-        float rotation = (-0.25f + .4f * adjustedPercent + tensionPercent * 2) * .5f;
-        mProgress.setProgressRotation(rotation);
+        // Set rather than animated: the drawable ignores its alpha, so an animation would only
+        // restart the circle view's animation and redraw it for nothing
+        mProgress.setAlpha(mState.isPastTrigger() ? MAX_ALPHA : STARTING_PROGRESS_ALPHA);
+        mProgress.setStartEndTrim(0f, mState.getEndTrim());
+        mProgress.setArrowScale(mState.getArrowScale());
+        mProgress.setProgressRotation(mState.getRotation());
+        mProgress.setDragProgress(mState.getDragPercent());
         setTargetOffsetTopAndBottom(targetY - mCurrentTargetOffsetTop);
     }
 
     private void finishSpinner(float overscrollTop) {
-        if (overscrollTop > mTotalDragDistance) {
+        if (mState.shouldTriggerRefresh(overscrollTop)) {
             setRefreshing(true, true /* notify */);
         } else {
             // cancel refresh
-            mRefreshing = false;
+            setRefreshingState(false);
             mProgress.setStartEndTrim(0f, 0f);
             Animation.AnimationListener listener = null;
             if (!mScale) {
@@ -1002,20 +1816,17 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         final int action = ev.getActionMasked();
         int pointerIndex = -1;
 
-        if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
-            mReturningToStart = false;
-        }
-
-        if (!isEnabled() || mReturningToStart || canChildScrollUp()
-                || mRefreshing || mNestedScrollInProgress) {
+        if (!isEnabled() || !mState.canStartSwipe() || canChildScrollUp()
+                || mNestedScrollInProgress) {
             // Fail fast if we're not in a state where a swipe is possible
             return false;
         }
 
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                ensureProgressResources();
                 mActivePointerId = ev.getPointerId(0);
-                mIsBeingDragged = false;
+                mState.setBeingDragged(false);
                 break;
 
             case MotionEvent.ACTION_MOVE: {
@@ -1028,7 +1839,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                 final float y = ev.getY(pointerIndex);
                 startDragging(y);
 
-                if (mIsBeingDragged) {
+                if (mState.isBeingDragged()) {
                     final float overscrollTop = (y - mInitialMotionY) * DRAG_RATE;
                     if (overscrollTop > 0) {
                         moveSpinner(overscrollTop);
@@ -1060,10 +1871,10 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                     return false;
                 }
 
-                if (mIsBeingDragged) {
+                if (mState.isBeingDragged()) {
                     final float y = ev.getY(pointerIndex);
                     final float overscrollTop = (y - mInitialMotionY) * DRAG_RATE;
-                    mIsBeingDragged = false;
+                    mState.setBeingDragged(false);
                     finishSpinner(overscrollTop);
                 }
                 mActivePointerId = INVALID_POINTER;
@@ -1078,9 +1889,11 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
 
     private void startDragging(float y) {
         final float yDiff = y - mInitialDownY;
-        if (yDiff > mTouchSlop && !mIsBeingDragged) {
+        if (yDiff > mTouchSlop && !mState.isBeingDragged()) {
+            // Idle release may have run since the down event
+            ensureProgressResources();
             mInitialMotionY = mInitialDownY + mTouchSlop;
-            mIsBeingDragged = true;
+            mState.setBeingDragged(true);
             mProgress.setAlpha(STARTING_PROGRESS_ALPHA);
         }
     }
@@ -1088,7 +1901,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     private void animateOffsetToCorrectPosition(int from, AnimationListener listener) {
         mFrom = from;
         mAnimateToCorrectPosition.reset();
-        mAnimateToCorrectPosition.setDuration(ANIMATE_TO_TRIGGER_DURATION);
+        mAnimateToCorrectPosition.setDuration(getAnimationDuration(ANIMATE_TO_TRIGGER_DURATION));
         mAnimateToCorrectPosition.setInterpolator(mDecelerateInterpolator);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
@@ -1104,7 +1917,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         } else {
             mFrom = from;
             mAnimateToStartPosition.reset();
-            mAnimateToStartPosition.setDuration(ANIMATE_TO_START_DURATION);
+            mAnimateToStartPosition.setDuration(getAnimationDuration(ANIMATE_TO_START_DURATION));
             mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
             if (listener != null) {
                 mCircleView.setAnimationListener(listener);
@@ -1117,7 +1930,7 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
     void moveToStart(float interpolatedTime) {
         int targetTop = 0;
         targetTop = (mFrom + (int) ((mOriginalOffsetTop - mFrom) * interpolatedTime));
-        int offset = targetTop - mCircleView.getTop();
+        int offset = targetTop - mCurrentTargetOffsetTop;
         setTargetOffsetTopAndBottom(offset);
     }
 
@@ -1133,15 +1946,20 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
                 moveToStart(interpolatedTime);
             }
         };
-        mScaleDownToStartAnimation.setDuration(SCALE_DOWN_DURATION);
+        mScaleDownToStartAnimation.setDuration(getAnimationDuration(SCALE_DOWN_DURATION));
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
         mCircleView.clearAnimation();
-        mCircleView.startAnimation(mScaleDownToStartAnimation);
+        mCircleView.startAnimation(mScaleDownToStartAnimation,
+                !mLowPower /* useHardwareLayer */);
     }
 
     void setTargetOffsetTopAndBottom(int offset) {
+        if (mCircleView == null) {
+            mCurrentTargetOffsetTop += offset;
+            return;
+        }
         mCircleView.bringToFront();
         ViewCompat.offsetTopAndBottom(mCircleView, offset);
         mCurrentTargetOffsetTop = mCircleView.getTop();
@@ -1158,6 +1976,52 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         }
     }
 
+    /**
+     * Refresh state saved across configuration changes, see {@link #onSaveInstanceState()}.
+     */
+    static class SavedState extends View.BaseSavedState {
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in) {
+                        return new SavedState(in);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                };
+
+        boolean mRefreshing;
+        // Whether the refresh was started by the swipe gesture
+        boolean mNotify;
+        float mRotationPhase;
+        // How long the refresh had been running, or -1 if it was not
+        long mRefreshElapsedMillis;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel in) {
+            super(in);
+            mRefreshing = in.readByte() != 0;
+            mNotify = in.readByte() != 0;
+            mRotationPhase = in.readFloat();
+            mRefreshElapsedMillis = in.readLong();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByte((byte) (mRefreshing ? 1 : 0));
+            out.writeByte((byte) (mNotify ? 1 : 0));
+            out.writeFloat(mRotationPhase);
+            out.writeLong(mRefreshElapsedMillis);
+        }
+    }
+
     /**
      * Classes that wish to be notified when the swipe gesture correctly
      * triggers a refresh should implement this interface.
@@ -1169,6 +2033,31 @@ public class SwipeRefreshLayout extends ViewGroup implements NestedScrollingPare
         void onRefresh();
     }
 
+    /**
+     * Classes that wish to be notified when a refresh runs longer than the timeout set with
+     * {@link SwipeRefreshLayout#setRefreshTimeout(long)} should implement this interface.
+     */
+    public interface OnRefreshTimeoutListener {
+        /**
+         * Called when a refresh times out, before the spinner is taken down.
+         */
+        void onRefreshTimeout();
+    }
+
+    /**
+     * Classes that wish to know how long refreshes run, e.g. to find slow endpoints, should
+     * implement this interface.
+     */
+    public interface OnRefreshFinishedListener {
+        /**
+         * Called when a refresh finishes.
+         *
+         * @param durationMillis How long the refresh ran in milliseconds.
+         * @param timedOut       Whether it was stopped by the refresh timeout.
+         */
+        void onRefreshFinished(long durationMillis, boolean timedOut);
+    }
+
     /**
      * Classes that wish to override {@link SwipeRefreshLayout#canChildScrollUp()} method
      * behavior should implement this interface.
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.laychv.swiperefreshlayout.source;
+
+/**
+ * The drag/refresh state machine and spinner physics of {@link SwipeRefreshLayout}, without any
+ * dependency on the View system, so that another UI toolkit can share the same pull behaviour.
+ *
+ * <p>The host feeds it the overscroll of a gesture, either accumulated from touch events or from
+ * nested scrolling, and reads back where the spinner goes and how it looks. Results are kept in
+ * fields of this object rather than returned as new objects, so driving it allocates nothing.
+ * It is not thread safe and is meant to be driven from the UI thread.
+ */
+public class SwipeRefreshState {
+    // Max amount of circle that can be filled by progress during swipe gesture,
+    // where 1.0 is a full circle
+    private static final float MAX_PROGRESS_ANGLE = .8f;
+
+    private boolean mRefreshing;
+    private boolean mIsBeingDragged;
+    // If nested scrolling is enabled, the total amount that needed to be
+    // consumed by this as the nested scrolling parent is used in place of the
+    // overscroll determined by MOVE events in the onTouch handler
+    private float mTotalUnconsumed;
+
+    // Geometry, see setGeometry()
+    private float mTotalDragDistance = -1;
+    private int mOriginalOffsetTop;
+    private float mSlingshotDistance;
+
+    // Results of the last updateSpinner()
+    private int mSpinnerOffsetTop;
+    private float mScaleProgress;
+    private float mDragPercent;
+    private float mAdjustedPercent;
+    private float mTensionPercent;
+    private boolean mPastTrigger;
+
+    /**
+     * Sets the geometry the spinner moves in.
+     *
+     * @param totalDragDistance distance the gesture has to overscroll to trigger a refresh
+     * @param originalOffsetTop top offset of the spinner when it is at rest
+     * @param slingshotDistance distance the spinner travels beyond its rest position for a full
+     *                          drag, before the extra tension kicks in
+     */
+    public void setGeometry(float totalDragDistance, int originalOffsetTop,
+                            float slingshotDistance) {
+        mTotalDragDistance = totalDragDistance;
+        mOriginalOffsetTop = originalOffsetTop;
+        mSlingshotDistance = slingshotDistance;
+    }
+
+    /**
+     * @return Whether a refresh is in progress.
+     */
+    public boolean isRefreshing() {
+        return mRefreshing;
+    }
+
+    public void setRefreshing(boolean refreshing) {
+        mRefreshing = refreshing;
+    }
+
+    /**
+     * @return Whether a gesture is currently moving the spinner.
+     */
+    public boolean isBeingDragged() {
+        return mIsBeingDragged;
+    }
+
+    public void setBeingDragged(boolean beingDragged) {
+        mIsBeingDragged = beingDragged;
+    }
+
+    /**
+     * @return Whether a new swipe may start in the current state, ignoring whether the content
+     * can still scroll up, which only the host knows.
+     */
+    public boolean canStartSwipe() {
+        return !mRefreshing;
+    }
+
+    /**
+     * @return The overscroll accumulated by nested scrolling.
+     */
+    public float getTotalUnconsumed() {
+        return mTotalUnconsumed;
+    }
+
+    /**
+     * Resets the overscroll accumulated by nested scrolling.
+     */
+    public void resetUnconsumed() {
+        mTotalUnconsumed = 0;
+    }
+
+    /**
+     * Adds overscroll that the scrolling content could not consume.
+     *
+     * @param distance positive distance pulled past the top of the content
+     */
+    public void addUnconsumed(float distance) {
+        mTotalUnconsumed += distance;
+    }
+
+    /**
+     * Takes back accumulated overscroll before the content is allowed to scroll, so that the
+     * spinner moves back up first.
+     *
+     * @param dy distance scrolled towards the end of the content
+     * @return The part of {@code dy} that was consumed
+     */
+    public int consumePreScroll(int dy) {
+        if (dy <= 0 || mTotalUnconsumed <= 0) {
+            return 0;
+        }
+        if (dy > mTotalUnconsumed) {
+            final int consumed = dy - (int) mTotalUnconsumed;
+            mTotalUnconsumed = 0;
+            return consumed;
+        }
+        mTotalUnconsumed -= dy;
+        return dy;
+    }
+
+    /**
+     * @return Whether releasing the gesture at {@code overscrollTop} triggers a refresh.
+     */
+    public boolean shouldTriggerRefresh(float overscrollTop) {
+        return overscrollTop > mTotalDragDistance;
+    }
+
+    /**
+     * Computes where the spinner goes and how it looks for the given overscroll. The results are
+     * read back with the getters below.
+     *
+     * @param overscrollTop distance the gesture has pulled past the top of the content
+     */
+    public void updateSpinner(float overscrollTop) {
+        float originalDragPercent = overscrollTop / mTotalDragDistance;
+
+        float dragPercent = Math.min(1f, Math.abs(originalDragPercent));
+        float adjustedPercent = (float) Math.max(dragPercent - .4, 0) * 5 / 3;
+        float extraOS = Math.abs(overscrollTop) - mTotalDragDistance;
+        float slingshotDist = mSlingshotDistance;
+        float tensionSlingshotPercent = Math.max(0, Math.min(extraOS, slingshotDist * 2)
+                / slingshotDist);
+        float tensionPercent = (float) ((tensionSlingshotPercent / 4) - Math.pow(
+                (tensionSlingshotPercent / 4), 2)) * 2f;
+        float extraMove = (slingshotDist) * tensionPercent * 2;
+
+        mSpinnerOffsetTop = mOriginalOffsetTop + (int) ((slingshotDist * dragPercent) + extraMove);
+        mScaleProgress = Math.min(1f, overscrollTop / mTotalDragDistance);
+        mDragPercent = dragPercent;
+        mAdjustedPercent = adjustedPercent;
+        mTensionPercent = tensionPercent;
+        mPastTrigger = overscrollTop >= mTotalDragDistance;
+    }
+
+    /**
+     * @return Top offset of the spinner.
+     */
+    public int getSpinnerOffsetTop() {
+        return mSpinnerOffsetTop;
+    }
+
+    /**
+     * @return Scale of the spinner when it is scaled up rather than clipped, from 0 to 1.
+     */
+    public float getScaleProgress() {
+        return mScaleProgress;
+    }
+
+    /**
+     * @return How far the gesture is towards triggering a refresh, from 0 to 1.
+     */
+    public float getDragPercent() {
+        return mDragPercent;
+    }
+
+    /**
+     * @return Whether the gesture has pulled far enough to trigger a refresh when released.
+     */
+    public boolean isPastTrigger() {
+        return mPastTrigger;
+    }
+
+    /**
+     * @return End trim of the progress arc, where 1.0 is a full circle.
+     */
+    public float getEndTrim() {
+        return Math.min(MAX_PROGRESS_ANGLE, mAdjustedPercent * .8f);
+    }
+
+    /**
+     * @return Scale of the arrowhead, from 0 to 1.
+     */
+    public float getArrowScale() {
+        return Math.min(1f, mAdjustedPercent);
+    }
+
+    /**
+     * @return Rotation of the progress, where 1.0 is a full turn.
+     */
+    public float getRotation() {
+        return (-0.25f + .4f * mAdjustedPercent + mTensionPercent * 2) * .5f;
+    }
+}
@@ -0,0 +1,164 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+import androidx.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Caches the system state that turns on low power mode in
+ * {@link SwipeRefreshLayout#LOW_POWER_AUTO}: battery saver, the thermal status and, below API 26,
+ * the animator duration scale. A single receiver and thermal listener are shared by all attached
+ * layouts of the process, registered when the first one attaches and removed when the last one
+ * detaches, so that neither attaching a layout nor drawing the spinner queries the system.
+ *
+ * <p>Only used on the main thread.
+ */
+final class SystemPowerState {
+    private static SystemPowerState sInstance;
+
+    private final Context mContext;
+    private final PowerManager mPowerManager;
+    // Layouts registered while attached; weak, so that a layout that never detaches is not leaked
+    private final List<WeakReference<SwipeRefreshLayout>> mLayouts = new ArrayList<>();
+    private boolean mListening;
+    private boolean mPowerSaveMode;
+    private int mThermalStatus = PowerManager.THERMAL_STATUS_NONE;
+    private boolean mAnimatorsDisabled;
+
+    private final BroadcastReceiver mPowerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mPowerSaveMode = mPowerManager != null && mPowerManager.isPowerSaveMode();
+        }
+    };
+    // Created on API 29+ only, where the thermal status is available
+    private PowerManager.OnThermalStatusChangedListener mThermalStatusListener;
+    // Created below API 26 only, where ValueAnimator.areAnimatorsEnabled() is not available
+    private ContentObserver mAnimatorScaleObserver;
+
+    private SystemPowerState(Context context) {
+        mContext = context;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    static SystemPowerState get(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new SystemPowerState(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Starts tracking the system state for a layout, e.g. when it is attached.
+     */
+    void register(@NonNull SwipeRefreshLayout layout) {
+        pruneLayouts(null);
+        mLayouts.add(new WeakReference<>(layout));
+        if (!mListening) {
+            mListening = true;
+            registerListeners();
+        }
+    }
+
+    /**
+     * Stops tracking the system state for a layout, e.g. when it is detached. The listeners are
+     * removed once no layout is left.
+     */
+    void unregister(@NonNull SwipeRefreshLayout layout) {
+        pruneLayouts(layout);
+        if (mListening && mLayouts.isEmpty()) {
+            mListening = false;
+            unregisterListeners();
+        }
+    }
+
+    /**
+     * @return Whether battery saver, an elevated thermal status or, below API 26, disabled
+     * animations ask for low power.
+     */
+    boolean isLowPower() {
+        return mPowerSaveMode || mAnimatorsDisabled
+                || mThermalStatus >= PowerManager.THERMAL_STATUS_MODERATE;
+    }
+
+    /**
+     * @return The last thermal status reported by the system, THERMAL_STATUS_NONE below API 29.
+     */
+    int getThermalStatus() {
+        return mThermalStatus;
+    }
+
+    /**
+     * Removes the given layout, and layouts that were garbage collected without detaching.
+     */
+    private void pruneLayouts(SwipeRefreshLayout layout) {
+        final Iterator<WeakReference<SwipeRefreshLayout>> it = mLayouts.iterator();
+        while (it.hasNext()) {
+            final SwipeRefreshLayout registered = it.next().get();
+            if (registered == null || registered == layout) {
+                it.remove();
+            }
+        }
+    }
+
+    private void registerListeners() {
+        mContext.registerReceiver(mPowerSaveReceiver,
+                new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        mPowerSaveMode = mPowerManager != null && mPowerManager.isPowerSaveMode();
+        if (Build.VERSION.SDK_INT >= 29 && mPowerManager != null) {
+            if (mThermalStatusListener == null) {
+                mThermalStatusListener = new PowerManager.OnThermalStatusChangedListener() {
+                    @Override
+                    public void onThermalStatusChanged(int status) {
+                        mThermalStatus = status;
+                    }
+                };
+            }
+            mThermalStatus = mPowerManager.getCurrentThermalStatus();
+            mPowerManager.addThermalStatusListener(mThermalStatusListener);
+        }
+        if (Build.VERSION.SDK_INT < 26) {
+            if (mAnimatorScaleObserver == null) {
+                mAnimatorScaleObserver = new ContentObserver(new Handler(Looper.getMainLooper())) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        updateAnimatorsDisabled();
+                    }
+                };
+            }
+            mContext.getContentResolver().registerContentObserver(
+                    Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE), false,
+                    mAnimatorScaleObserver);
+            updateAnimatorsDisabled();
+        }
+    }
+
+    private void unregisterListeners() {
+        mContext.unregisterReceiver(mPowerSaveReceiver);
+        if (mThermalStatusListener != null) {
+            mPowerManager.removeThermalStatusListener(mThermalStatusListener);
+        }
+        if (mAnimatorScaleObserver != null) {
+            mContext.getContentResolver().unregisterContentObserver(mAnimatorScaleObserver);
+        }
+    }
+
+    private void updateAnimatorsDisabled() {
+        mAnimatorsDisabled = Settings.Global.getFloat(mContext.getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f) == 0f;
+    }
+}
@@ -0,0 +1,125 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.appcompat.content.res.AppCompatResources;
+
+/**
+ * Renders the indicator as a rotating vector drawable, scaled to the indicator bounds. Unlike
+ * {@link BitmapIndicatorRenderer} the icon stays sharp at every density.
+ */
+public class VectorIndicatorRenderer implements IndicatorRenderer {
+    // Alpha of the part of the icon not yet filled by determinate progress
+    private static final int UNFILLED_ALPHA = 0x4D;
+
+    private final Context mContext;
+    private final int mIconRes;
+    private Drawable mIcon;
+    // Tint of the icon from the color scheme, see setColor()
+    private boolean mTinted;
+    private int mColor;
+    // Progress of the refresh, negative while indeterminate
+    private float mProgress = -1f;
+
+    /**
+     * @param context context to inflate the icon with
+     * @param iconRes vector drawable resource of the icon
+     */
+    public VectorIndicatorRenderer(@NonNull Context context, @DrawableRes int iconRes) {
+        mContext = context;
+        mIconRes = iconRes;
+    }
+
+    @Override
+    public void prepare() {
+        if (mIcon == null) {
+            mIcon = AppCompatResources.getDrawable(mContext, mIconRes);
+            if (mIcon != null && mTinted) {
+                // Tint a copy, not the drawable state shared with the rest of the app
+                mIcon = mIcon.mutate();
+                mIcon.setTint(mColor);
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        mIcon = null;
+    }
+
+    @Override
+    public int getRetainedByteCount() {
+        // The rasterized cache of a vector drawable is owned by the framework
+        return 0;
+    }
+
+    @Override
+    public int getGraphicsByteCount() {
+        return 0;
+    }
+
+    @Override
+    public void setDragProgress(float progress) {
+    }
+
+    @Override
+    public void setRefreshing(boolean refreshing) {
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        mProgress = progress;
+    }
+
+    @Override
+    public void setColor(int color) {
+        if (mTinted && mColor == color) {
+            return;
+        }
+        if (mIcon != null && !mTinted) {
+            mIcon = mIcon.mutate();
+        }
+        mTinted = true;
+        mColor = color;
+        if (mIcon != null) {
+            mIcon.setTint(color);
+        }
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, @NonNull Rect bounds, float rotation) {
+        if (mIcon == null) {
+            return;
+        }
+        mIcon.setBounds(bounds);
+        canvas.rotate(rotation, bounds.exactCenterX(), bounds.exactCenterY());
+        if (mProgress >= 0f) {
+            // Determinate: the icon fills up from the bottom
+            mIcon.setAlpha(UNFILLED_ALPHA);
+            mIcon.draw(canvas);
+            mIcon.setAlpha(0xFF);
+            canvas.clipRect(bounds.left, bounds.bottom - bounds.height() * mProgress,
+                    bounds.right, bounds.bottom);
+        }
+        mIcon.draw(canvas);
+    }
+
+    @Override
+    public boolean allocatesWhileDrawing() {
+        return false;
+    }
+
+    @Override
+    public boolean canRunOnRenderThread() {
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.laychv.swiperefreshlayout.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Renders {@link CircularProgressDrawable} at fixed rotations, trims, alphas and progress values
+ * with Robolectric's native graphics and compares the results against golden images, see
+ * {@link GoldenImages}. Each render is also timed, so that a refactor which slows drawing down
+ * fails like one that changes what is drawn.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@Config(sdk = 31, qualifiers = "xhdpi")
+public class CircularProgressDrawableSnapshotTest {
+    // The default 40dp circle at xhdpi
+    private static final int SIZE = 80;
+    // Number of renders timed per case, compared by their median
+    private static final int TIMED_RENDERS = 50;
+    // Median time a render may take; generous, as the JVM renders on the CPU
+    private static final long RENDER_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private CircularProgressDrawable mDrawable;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mDrawable = new CircularProgressDrawable(RuntimeEnvironment.getApplication());
+        mDrawable.setBounds(0, 0, SIZE, SIZE);
+        mDrawable.ensureResources();
+        mBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @Test
+    public void rotations() throws IOException {
+        for (float rotation : new float[]{0f, .125f, .25f, .5f, .75f}) {
+            mDrawable.setProgressRotation(rotation);
+            check("rotation_" + (int) (rotation * 360));
+        }
+    }
+
+    @Test
+    public void trims() throws IOException {
+        final float[][] trims = {{0f, .25f}, {.2f, .8f}, {.5f, 1f}};
+        for (float[] trim : trims) {
+            mDrawable.mStartTrim = trim[0];
+            mDrawable.mEndTrim = trim[1];
+            check("trim_" + (int) (trim[0] * 100) + "_" + (int) (trim[1] * 100));
+        }
+    }
+
+    @Test
+    public void alphas() throws IOException {
+        for (int alpha : new int[]{0x4D, 0xFF}) {
+            mDrawable.setAlpha(alpha);
+            check("alpha_" + alpha);
+        }
+    }
+
+    @Test
+    public void determinateProgress() throws IOException {
+        for (float progress : new float[]{0f, .5f, 1f}) {
+            mDrawable.setProgress(progress);
+            check("progress_" + (int) (progress * 100));
+        }
+    }
+
+    @Test
+    public void alphaMaskTintedWithColorScheme() throws IOException {
+        final BitmapIndicatorRenderer renderer = new BitmapIndicatorRenderer(
+                RuntimeEnvironment.getApplication().getResources(), R.drawable.icon_loading_bg);
+        renderer.setAlphaMask(true);
+        mDrawable.setRenderer(renderer);
+        mDrawable.setColorSchemeColors(Color.RED, Color.BLUE);
+        check("alpha_mask_red");
+    }
+
+    private void check(String name) throws IOException {
+        render();
+        GoldenImages.assertMatches(name, mBitmap);
+        final long[] durations = new long[TIMED_RENDERS];
+        for (int i = 0; i < durations.length; i++) {
+            final long start = System.nanoTime();
+            render();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        final long median = durations[durations.length / 2];
+        assertTrue(name + " took " + median + " ns to render, budget " + RENDER_BUDGET_NANOS,
+                median <= RENDER_BUDGET_NANOS);
+    }
+
+    private void render() {
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mDrawable.draw(mCanvas);
+    }
+}
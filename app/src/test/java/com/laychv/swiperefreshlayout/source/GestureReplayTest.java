@@ -0,0 +1,239 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Transformation;
+
+import androidx.core.view.ViewCompat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Replays the recorded gestures in {@code src/test/resources/gestures}, see {@link GestureTrace},
+ * against a {@link SwipeRefreshLayout} on Robolectric's paused main looper, which serves as a
+ * fake clock. Checks that each gesture pulls the spinner, triggers a refresh or not as recorded,
+ * and leaves the spinner where it belongs, and measures the CPU time spent per event.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@Config(sdk = 31, qualifiers = "mdpi")
+public class GestureReplayTest {
+    // Interval the clock advances by, one frame at 60 Hz
+    private static final long FRAME_MILLIS = 16;
+    // Time given to the spinner to settle after the gesture ends
+    private static final long SETTLE_MILLIS = 2000;
+    // Median CPU time an event may take; generous, as the JVM is not a device
+    private static final long EVENT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final Transformation mTransformation = new Transformation();
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+    private SwipeRefreshLayout mLayout;
+    private View mTarget;
+    private int mRefreshCount;
+    private long mDownTime;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mLayout = new SwipeRefreshLayout(activity);
+        mTarget = new View(activity);
+        mLayout.addView(mTarget, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        mLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
+            @Override
+            public void onRefresh() {
+                mRefreshCount++;
+            }
+        });
+        activity.setContentView(mLayout, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        advance(FRAME_MILLIS);
+    }
+
+    @Test
+    public void slowPull() throws IOException {
+        replay("slow_pull");
+    }
+
+    @Test
+    public void fastFlick() throws IOException {
+        replay("fast_flick");
+    }
+
+    @Test
+    public void pullAndCancel() throws IOException {
+        replay("pull_and_cancel");
+    }
+
+    @Test
+    public void jitteryMultiTouch() throws IOException {
+        replay("jittery_multitouch");
+    }
+
+    @Test
+    public void nestedPull() throws IOException {
+        replay("nested_pull");
+    }
+
+    private void replay(String name) throws IOException {
+        final GestureTrace trace = GestureTrace.load(name);
+        final int originalOffset = mLayout.mCurrentTargetOffsetTop;
+        final long[] cpuTimes = new long[trace.events.size()];
+        int peakOffset = originalOffset;
+        long elapsed = 0;
+        mDownTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < cpuTimes.length; i++) {
+            final GestureTrace.Event event = trace.events.get(i);
+            advance(event.timeMillis - elapsed);
+            elapsed = event.timeMillis;
+            final long start = mThreadBean.getCurrentThreadCpuTime();
+            dispatch(event);
+            cpuTimes[i] = mThreadBean.getCurrentThreadCpuTime() - start;
+            peakOffset = Math.max(peakOffset, mLayout.mCurrentTargetOffsetTop);
+        }
+        advance(SETTLE_MILLIS);
+
+        assertTrue(name + " never pulled the spinner", peakOffset > originalOffset);
+        assertEquals(name + " refreshes", trace.expectRefresh ? 1 : 0, mRefreshCount);
+        assertEquals(name + " refreshing", trace.expectRefresh, mLayout.isRefreshing());
+        final int settledOffset = trace.expectRefresh
+                ? mLayout.mOriginalOffsetTop + mLayout.getProgressViewEndOffset()
+                : mLayout.mOriginalOffsetTop;
+        assertEquals(name + " settled offset", settledOffset, mLayout.mCurrentTargetOffsetTop);
+
+        Arrays.sort(cpuTimes);
+        final long median = cpuTimes[cpuTimes.length / 2];
+        System.out.println(name + ": " + cpuTimes.length + " events, CPU time per event median "
+                + median + " ns, max " + cpuTimes[cpuTimes.length - 1] + " ns");
+        assertTrue(name + " took " + median + " ns per event, budget " + EVENT_BUDGET_NANOS,
+                median <= EVENT_BUDGET_NANOS);
+    }
+
+    private void dispatch(GestureTrace.Event event) {
+        switch (event.action) {
+            case GestureTrace.NESTED_START:
+                final int axes = ViewCompat.SCROLL_AXIS_VERTICAL;
+                if (mLayout.onStartNestedScroll(mTarget, mTarget, axes)) {
+                    mLayout.onNestedScrollAccepted(mTarget, mTarget, axes);
+                }
+                break;
+            case GestureTrace.NESTED_SCROLL:
+                // The target is at its top, so it consumes none of the scroll itself
+                final int[] consumed = new int[2];
+                mLayout.onNestedPreScroll(mTarget, 0, event.dyUnconsumed, consumed);
+                mLayout.onNestedScroll(mTarget, 0, 0, 0, event.dyUnconsumed - consumed[1]);
+                break;
+            case GestureTrace.NESTED_STOP:
+                mLayout.onStopNestedScroll(mTarget);
+                break;
+            default:
+                final MotionEvent motionEvent = obtainMotionEvent(event);
+                mLayout.dispatchTouchEvent(motionEvent);
+                motionEvent.recycle();
+                break;
+        }
+    }
+
+    private MotionEvent obtainMotionEvent(GestureTrace.Event event) {
+        final int count = event.pointerIds.length;
+        final MotionEvent.PointerProperties[] properties =
+                new MotionEvent.PointerProperties[count];
+        final MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[count];
+        for (int i = 0; i < count; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = event.pointerIds[i];
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = event.xs[i];
+            coords[i].y = event.ys[i];
+            coords[i].pressure = 1f;
+            coords[i].size = 1f;
+        }
+        final int pointerShift = event.actionIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT;
+        final int action;
+        switch (event.action) {
+            case GestureTrace.DOWN:
+                action = MotionEvent.ACTION_DOWN;
+                break;
+            case GestureTrace.MOVE:
+                action = MotionEvent.ACTION_MOVE;
+                break;
+            case GestureTrace.UP:
+                action = MotionEvent.ACTION_UP;
+                break;
+            case GestureTrace.CANCEL:
+                action = MotionEvent.ACTION_CANCEL;
+                break;
+            case GestureTrace.POINTER_DOWN:
+                action = MotionEvent.ACTION_POINTER_DOWN | pointerShift;
+                break;
+            case GestureTrace.POINTER_UP:
+                action = MotionEvent.ACTION_POINTER_UP | pointerShift;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action " + event.action);
+        }
+        return MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action, count,
+                properties, coords, 0, 0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+    }
+
+    /**
+     * Advances the fake clock frame by frame, running what the main looper has queued and the
+     * view animations of the spinner. Robolectric does not draw, and view animations only run
+     * while their view is drawn, so they are stepped here the way
+     * {@code View.applyLegacyAnimation()} does.
+     */
+    private void advance(long millis) {
+        while (millis > 0) {
+            final long step = Math.min(millis, FRAME_MILLIS);
+            shadowOf(Looper.getMainLooper()).idleFor(step, TimeUnit.MILLISECONDS);
+            stepCircleAnimation();
+            millis -= step;
+        }
+    }
+
+    private void stepCircleAnimation() {
+        final CircleImageView circle = mLayout.mCircleView;
+        final Animation animation = circle != null ? circle.getAnimation() : null;
+        if (animation == null) {
+            return;
+        }
+        if (!animation.isInitialized()) {
+            animation.initialize(circle.getWidth(), circle.getHeight(), mLayout.getWidth(),
+                    mLayout.getHeight());
+            circle.onAnimationStart();
+        }
+        mTransformation.clear();
+        if (!animation.getTransformation(AnimationUtils.currentAnimationTimeMillis(),
+                mTransformation)) {
+            // As ViewGroup.finishAnimatingView() does
+            if (!animation.getFillAfter()) {
+                circle.clearAnimation();
+            }
+            circle.onAnimationEnd();
+        }
+    }
+}
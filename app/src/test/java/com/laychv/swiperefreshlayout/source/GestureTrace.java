@@ -0,0 +1,142 @@
+package com.laychv.swiperefreshlayout.source;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded gesture read from {@code src/test/resources/gestures}, replayed by
+ * {@link GestureReplayTest}. Each line is one event:
+ *
+ * <pre>
+ * # expect refresh=true
+ * 0 DOWN 0:160,100
+ * 16 MOVE 0:160,104
+ * 96 POINTER_DOWN:1 0:160,140 1:200,180
+ * 112 POINTER_UP:1 0:160,150 1:200,220
+ * 128 UP 0:160,150
+ * 0 NESTED_START
+ * 16 NESTED_SCROLL -10
+ * 32 NESTED_STOP
+ * </pre>
+ *
+ * Times are in milliseconds from the start of the gesture. A touch event lists the action, the
+ * index of the pointer it applies to for {@code POINTER_DOWN} and {@code POINTER_UP}, and the id
+ * and position of every pointer down. A nested scroll event gives the vertical distance the
+ * scrolling child left unconsumed.
+ */
+final class GestureTrace {
+    static final String DOWN = "DOWN";
+    static final String MOVE = "MOVE";
+    static final String UP = "UP";
+    static final String CANCEL = "CANCEL";
+    static final String POINTER_DOWN = "POINTER_DOWN";
+    static final String POINTER_UP = "POINTER_UP";
+    static final String NESTED_START = "NESTED_START";
+    static final String NESTED_SCROLL = "NESTED_SCROLL";
+    static final String NESTED_STOP = "NESTED_STOP";
+
+    private static final String EXPECT_REFRESH = "# expect refresh=";
+
+    final String name;
+    final boolean expectRefresh;
+    final List<Event> events;
+
+    private GestureTrace(String name, boolean expectRefresh, List<Event> events) {
+        this.name = name;
+        this.expectRefresh = expectRefresh;
+        this.events = events;
+    }
+
+    static final class Event {
+        final long timeMillis;
+        final String action;
+        // Pointer a POINTER_DOWN or POINTER_UP applies to
+        final int actionIndex;
+        final int[] pointerIds;
+        final float[] xs;
+        final float[] ys;
+        // Unconsumed vertical scroll of a NESTED_SCROLL
+        final int dyUnconsumed;
+
+        Event(long timeMillis, String action, int actionIndex, int[] pointerIds, float[] xs,
+              float[] ys, int dyUnconsumed) {
+            this.timeMillis = timeMillis;
+            this.action = action;
+            this.actionIndex = actionIndex;
+            this.pointerIds = pointerIds;
+            this.xs = xs;
+            this.ys = ys;
+            this.dyUnconsumed = dyUnconsumed;
+        }
+
+        boolean isNested() {
+            return action.startsWith("NESTED_");
+        }
+    }
+
+    static GestureTrace load(String name) throws IOException {
+        final InputStream in = GestureTrace.class.getClassLoader()
+                .getResourceAsStream("gestures/" + name + ".trace");
+        if (in == null) {
+            throw new IOException("No gesture trace " + name);
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            Boolean expectRefresh = null;
+            final List<Event> events = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith(EXPECT_REFRESH)) {
+                    expectRefresh = Boolean.valueOf(line.substring(EXPECT_REFRESH.length()));
+                } else if (!line.isEmpty() && !line.startsWith("#")) {
+                    events.add(parseEvent(line));
+                }
+            }
+            if (expectRefresh == null) {
+                throw new IOException(name + " does not state whether it refreshes");
+            }
+            return new GestureTrace(name, expectRefresh, events);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Event parseEvent(String line) throws IOException {
+        final String[] fields = line.split("\\s+");
+        if (fields.length < 2) {
+            throw new IOException("Malformed event: " + line);
+        }
+        final long time = Long.parseLong(fields[0]);
+        String action = fields[1];
+        int actionIndex = 0;
+        final int colon = action.indexOf(':');
+        if (colon >= 0) {
+            actionIndex = Integer.parseInt(action.substring(colon + 1));
+            action = action.substring(0, colon);
+        }
+        if (action.equals(NESTED_SCROLL)) {
+            return new Event(time, action, 0, null, null, null, Integer.parseInt(fields[2]));
+        }
+        final int count = fields.length - 2;
+        final int[] ids = new int[count];
+        final float[] xs = new float[count];
+        final float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            final String pointer = fields[i + 2];
+            final int idEnd = pointer.indexOf(':');
+            final int xEnd = pointer.indexOf(',');
+            if (idEnd < 0 || xEnd < idEnd) {
+                throw new IOException("Malformed pointer " + pointer + " in: " + line);
+            }
+            ids[i] = Integer.parseInt(pointer.substring(0, idEnd));
+            xs[i] = Float.parseFloat(pointer.substring(idEnd + 1, xEnd));
+            ys[i] = Float.parseFloat(pointer.substring(xEnd + 1));
+        }
+        return new Event(time, action, actionIndex, ids, xs, ys, 0);
+    }
+}
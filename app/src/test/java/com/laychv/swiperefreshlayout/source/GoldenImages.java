@@ -0,0 +1,88 @@
+package com.laychv.swiperefreshlayout.source;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+
+import org.junit.Assume;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares rendered bitmaps against golden PNGs in {@code app/src/test/golden}, with a tolerance
+ * for anti-aliasing noise. Run the tests with {@code -Pgolden.record} to write the current
+ * renders as the new golden images. Renders that do not match, or that have no golden image
+ * yet, are written to {@code app/build/outputs/golden} for inspection.
+ */
+final class GoldenImages {
+    // Largest difference per color channel that still counts as the same pixel
+    private static final int CHANNEL_TOLERANCE = 8;
+    // Fraction of the pixels that may differ by more than CHANNEL_TOLERANCE
+    private static final float MAX_DIFFERENT_PIXELS = .005f;
+
+    private GoldenImages() {
+    }
+
+    static void assertMatches(String name, Bitmap actual) throws IOException {
+        final File golden = new File(System.getProperty("golden.dir"), name + ".png");
+        if (Boolean.getBoolean("golden.record")) {
+            write(actual, golden);
+            return;
+        }
+        if (!golden.exists()) {
+            write(actual, getOutputFile(name));
+            // Golden images can only be rendered by Robolectric, record them on the first run
+            Assume.assumeTrue("No golden image " + golden + ", record it with -Pgolden.record",
+                    false);
+        }
+        final Bitmap expected = BitmapFactory.decodeFile(golden.getPath());
+        assertEquals(name + " width", expected.getWidth(), actual.getWidth());
+        assertEquals(name + " height", expected.getHeight(), actual.getHeight());
+        final int count = actual.getWidth() * actual.getHeight();
+        final int[] expectedPixels = new int[count];
+        final int[] actualPixels = new int[count];
+        expected.getPixels(expectedPixels, 0, expected.getWidth(), 0, 0,
+                expected.getWidth(), expected.getHeight());
+        actual.getPixels(actualPixels, 0, actual.getWidth(), 0, 0,
+                actual.getWidth(), actual.getHeight());
+        int different = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isSimilar(expectedPixels[i], actualPixels[i])) {
+                different++;
+            }
+        }
+        if (different > count * MAX_DIFFERENT_PIXELS) {
+            final File output = getOutputFile(name);
+            write(actual, output);
+            fail(name + ": " + different + " of " + count + " pixels differ from " + golden
+                    + ", actual render written to " + output);
+        }
+    }
+
+    private static boolean isSimilar(int expected, int actual) {
+        return Math.abs(Color.alpha(expected) - Color.alpha(actual)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.red(expected) - Color.red(actual)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.green(expected) - Color.green(actual)) <= CHANNEL_TOLERANCE
+                && Math.abs(Color.blue(expected) - Color.blue(actual)) <= CHANNEL_TOLERANCE;
+    }
+
+    private static File getOutputFile(String name) {
+        return new File(System.getProperty("golden.outputDir"), name + ".png");
+    }
+
+    private static void write(Bitmap bitmap, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.laychv.swiperefreshlayout.benchmark
+
+import androidx.benchmark.macro.ExperimentalBaselineProfilesApi
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Collects a Baseline Profile of starting MainActivity and pulling the custom widget to refresh
+ * a few times, which covers its touch handling, the spinner animations and the indicator
+ * drawing.
+ *
+ * Needs a rooted device or an emulator image without Google Play, API 28 or newer. Run with
+ * `./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.laychv.swiperefreshlayout.benchmark.BaselineProfileGenerator`
+ * and copy the rules of `com/laychv/swiperefreshlayout/source` from the generated
+ * `*-baseline-prof.txt` into `app/src/main/baseline-prof.txt`.
+ */
+@OptIn(ExperimentalBaselineProfilesApi::class)
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    @Test
+    fun generate() = baselineProfileRule.collectBaselineProfile(packageName = TARGET_PACKAGE) {
+        pressHome()
+        startActivityAndWait()
+        repeat(3) {
+            pullToRefresh(CUSTOM_WIDGET)
+        }
+    }
+}
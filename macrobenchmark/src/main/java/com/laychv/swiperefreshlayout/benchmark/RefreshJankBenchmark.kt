@@ -0,0 +1,41 @@
+package com.laychv.swiperefreshlayout.benchmark
+
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the frames drawn while pulling to refresh, while the spinner spins and while it
+ * returns, for the custom widget and for the stock androidx one next to it in MainActivity.
+ * FrameTimingMetric reports the P50, P90, P95 and P99 frame durations of each test, so the
+ * results of the two tests compare the widgets under the same scripted gesture.
+ *
+ * Run with `./gradlew :macrobenchmark:connectedBenchmarkAndroidTest` on a device or an emulator.
+ */
+@RunWith(AndroidJUnit4::class)
+class RefreshJankBenchmark {
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun customWidget() = pullToRefresh(CUSTOM_WIDGET)
+
+    @Test
+    fun stockWidget() = pullToRefresh(STOCK_WIDGET)
+
+    private fun pullToRefresh(widgetId: String) = benchmarkRule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(FrameTimingMetric()),
+            iterations = 10,
+            setupBlock = {
+                // A fresh activity per iteration, so that no refresh is left running
+                killProcess()
+                startActivityAndWait()
+            }
+    ) {
+        pullToRefresh(widgetId)
+    }
+}
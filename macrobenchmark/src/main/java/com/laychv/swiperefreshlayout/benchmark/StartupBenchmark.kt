@@ -0,0 +1,38 @@
+package com.laychv.swiperefreshlayout.benchmark
+
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the time to initial display of MainActivity, which inflates both widgets.
+ *
+ * Run with `./gradlew :macrobenchmark:connectedBenchmarkAndroidTest` on a device or an emulator.
+ */
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartup() = startup(StartupMode.COLD)
+
+    @Test
+    fun warmStartup() = startup(StartupMode.WARM)
+
+    private fun startup(startupMode: StartupMode) = benchmarkRule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(StartupTimingMetric()),
+            iterations = 10,
+            startupMode = startupMode,
+            setupBlock = {
+                pressHome()
+            }
+    ) {
+        startActivityAndWait()
+    }
+}
@@ -0,0 +1,33 @@
+package com.laychv.swiperefreshlayout.benchmark
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+
+const val TARGET_PACKAGE = "com.laychv.swiperefreshlayout"
+
+// Resource ids of the two widgets in activity_main.xml
+const val CUSTOM_WIDGET = "srl"
+const val STOCK_WIDGET = "srl_stock"
+
+// How long MainActivity keeps refreshing, see MainActivity.REFRESH_MILLIS, plus the animation
+// of the spinner back to its start
+private const val REFRESH_SETTLE_MILLIS = 1500L
+private const val WAIT_TIMEOUT_MILLIS = 5000L
+
+// Number of move events the scripted pull is made of, about 5 ms apart
+private const val PULL_STEPS = 40
+
+/**
+ * Pulls the widget with the given resource id from near its top to near its bottom, far past the
+ * refresh trigger, and waits until it has finished refreshing.
+ */
+fun MacrobenchmarkScope.pullToRefresh(widgetId: String) {
+    val widget = device.wait(Until.findObject(By.res(TARGET_PACKAGE, widgetId)),
+            WAIT_TIMEOUT_MILLIS) ?: throw AssertionError("No widget $widgetId")
+    val bounds = widget.visibleBounds
+    val x = bounds.centerX()
+    device.swipe(x, bounds.top + bounds.height() / 10, x, bounds.bottom - bounds.height() / 10,
+            PULL_STEPS)
+    Thread.sleep(REFRESH_SETTLE_MILLIS)
+}